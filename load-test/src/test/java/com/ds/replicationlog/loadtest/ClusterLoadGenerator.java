@@ -0,0 +1,199 @@
+package com.ds.replicationlog.loadtest;
+
+import com.ds.replicationlog.master.controller.AppendDataRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots a master and {@code --slaves} slaves in this JVM, drives open-loop append load against the master at
+ * {@code --rate} appends per second for every {@code --minAcknowledgments} value and reports append throughput,
+ * latency percentiles and replica lag.
+ * <p>
+ * Appends are issued on a fixed schedule regardless of how many are still in flight, and latency is measured from the
+ * scheduled send time, so a stalled master shows up in the percentiles instead of silently lowering the offered load.
+ * <p>
+ * Run with {@code ./gradlew :load-test:loadTest -PloadTestArgs="--slaves=3 --rate=2000 --durationSeconds=30
+ * --minAcknowledgments=0,1,2"}. Node settings can be overridden with {@code --master.<property>=<value>} and
+ * {@code --slave.<property>=<value>}.
+ */
+public class ClusterLoadGenerator {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration CATCH_UP_TIMEOUT = Duration.ofSeconds(60);
+    private static final long LAG_SAMPLE_INTERVAL_MS = 1_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalCluster cluster;
+    private final Options options;
+    private final HttpClient httpClient;
+    private final URI appendUri;
+
+    private ClusterLoadGenerator(LocalCluster cluster, Options options, HttpClient httpClient) {
+        this.cluster = cluster;
+        this.options = options;
+        this.httpClient = httpClient;
+        this.appendUri = URI.create("http://localhost:%d/master/data/append_data".formatted(cluster.masterPort()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = Options.parse(args);
+        try (var cluster = LocalCluster.start(options.slaves(), options.logDirectory(), options.nodeOverrides());
+             var httpClient = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .connectTimeout(REQUEST_TIMEOUT)
+                     .executor(Executors.newVirtualThreadPerTaskExecutor())
+                     .build()) {
+            var generator = new ClusterLoadGenerator(cluster, options, httpClient);
+            if (options.warmup().isPositive()) {
+                System.out.printf("Warming up for %ds%n", options.warmup().toSeconds());
+                generator.run(0, options.warmup(), false);
+            }
+            var reports = new ArrayList<String>();
+            for (var minAcknowledgments : options.minAcknowledgments()) {
+                reports.add(generator.run(minAcknowledgments, options.duration(), true));
+            }
+            System.out.printf("%nslaves=%d rate=%d/s duration=%ds payloadSize=%d%n", options.slaves(), options.rate(),
+                    options.duration().toSeconds(), options.payloadSize());
+            reports.forEach(System.out::println);
+        }
+    }
+
+    private String run(int minAcknowledgments, Duration duration, boolean printProgress) throws Exception {
+        var request = HttpRequest.newBuilder()
+                .uri(appendUri)
+                .timeout(REQUEST_TIMEOUT)
+                .headers("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+                        new AppendDataRequest("x".repeat(options.payloadSize()), minAcknowledgments))))
+                .build();
+        var totalRequests = (int) (options.rate() * duration.toSeconds());
+        var latenciesNanos = new long[totalRequests];
+        var appends = new CompletableFuture<?>[totalRequests];
+        var intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) options.rate();
+        var maxLag = new long[options.slaves()];
+
+        var lagSampler = Thread.startVirtualThread(() -> sampleLag(maxLag, printProgress));
+        var startNanos = System.nanoTime();
+        for (var i = 0; i < totalRequests; i++) {
+            var scheduledNanos = startNanos + (long) (i * intervalNanos);
+            for (var now = System.nanoTime(); now < scheduledNanos; now = System.nanoTime()) {
+                LockSupport.parkNanos(scheduledNanos - now);
+            }
+            var index = i;
+            appends[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, e) -> {
+                        latenciesNanos[index] = e == null && response.statusCode() == HttpURLConnection.HTTP_OK
+                                ? System.nanoTime() - scheduledNanos : -1;
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(appends).join();
+        var elapsedNanos = System.nanoTime() - startNanos;
+        var catchUpNanos = awaitReplicasCatchUp();
+        lagSampler.interrupt();
+        lagSampler.join();
+
+        var succeeded = Arrays.stream(latenciesNanos).filter(latency -> latency >= 0).sorted().toArray();
+        return ("minAcknowledgments=%d: %d appends, %d failed, %.1f appends/s, latency ms p50=%.2f p99=%.2f "
+                + "p999=%.2f max=%.2f, max replica lag=%s elements, replicas caught up %s").formatted(
+                minAcknowledgments, totalRequests, totalRequests - succeeded.length,
+                succeeded.length / (elapsedNanos / 1e9), percentileMillis(succeeded, 0.5),
+                percentileMillis(succeeded, 0.99), percentileMillis(succeeded, 0.999),
+                percentileMillis(succeeded, 1), Arrays.toString(maxLag),
+                catchUpNanos < 0 ? "never" : "in %.2fs".formatted(catchUpNanos / 1e9));
+    }
+
+    private void sampleLag(long[] maxLag, boolean printProgress) {
+        var startNanos = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            var lag = cluster.replicasLag();
+            for (var i = 0; i < maxLag.length; i++) {
+                maxLag[i] = Math.max(maxLag[i], lag.get(i));
+            }
+            if (printProgress) {
+                System.out.printf("t=%ds masterLastSeqNum=%d replicasLag=%s%n",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), cluster.masterLastSeqNum(),
+                        lag);
+            }
+            try {
+                Thread.sleep(LAG_SAMPLE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private long awaitReplicasCatchUp() throws InterruptedException {
+        var startNanos = System.nanoTime();
+        while (System.nanoTime() - startNanos < CATCH_UP_TIMEOUT.toNanos()) {
+            if (cluster.replicasLag().stream().allMatch(lag -> lag == 0)) {
+                return System.nanoTime() - startNanos;
+            }
+            Thread.sleep(10);
+        }
+        return -1;
+    }
+
+    private static double percentileMillis(long[] sortedLatenciesNanos, double percentile) {
+        if (sortedLatenciesNanos.length == 0) {
+            return Double.NaN;
+        }
+        var index = (int) Math.ceil(percentile * sortedLatenciesNanos.length) - 1;
+        return sortedLatenciesNanos[Math.max(index, 0)] / 1e6;
+    }
+
+    private record Options(int slaves, int rate, Duration duration, Duration warmup, List<Integer> minAcknowledgments,
+                           int payloadSize, String logDirectory, Map<String, String> nodeOverrides) {
+        private static final Set<String> NAMES = Set.of("slaves", "rate", "durationSeconds", "warmupSeconds",
+                "minAcknowledgments", "payloadSize", "logDirectory");
+
+        private static Options parse(String[] args) {
+            var values = new HashMap<String, String>();
+            var nodeOverrides = new HashMap<String, String>();
+            for (var arg : args) {
+                var separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Expected --name=value argument, got: " + arg);
+                }
+                var name = arg.substring(2, separator);
+                var value = arg.substring(separator + 1);
+                if (name.startsWith("master.") || name.startsWith("slave.")) {
+                    nodeOverrides.put(name, value);
+                } else if (NAMES.contains(name)) {
+                    values.put(name, value);
+                } else {
+                    throw new IllegalArgumentException("Unknown argument: " + name);
+                }
+            }
+            var options = new Options(
+                    Integer.parseInt(values.getOrDefault("slaves", "2")),
+                    Integer.parseInt(values.getOrDefault("rate", "1000")),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("durationSeconds", "30"))),
+                    Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmupSeconds", "5"))),
+                    Arrays.stream(values.getOrDefault("minAcknowledgments", "0,1").split(","))
+                            .map(String::trim).map(Integer::parseInt).toList(),
+                    Integer.parseInt(values.getOrDefault("payloadSize", "64")),
+                    values.getOrDefault("logDirectory", ""),
+                    nodeOverrides);
+            if (options.slaves() < 1 || options.rate() < 1 || !options.duration().isPositive()) {
+                throw new IllegalArgumentException("Slaves, rate and duration must be positive");
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ds.replicationlog.loadtest;
+
+import com.ds.replicationlog.master.MasterApplication;
+import com.ds.replicationlog.slave.SlaveApplication;
+import com.ds.replicationlog.statemachine.DataRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * One master and several slaves running as separate Spring contexts in this JVM on ephemeral ports.
+ * <p>
+ * Both applications ship an {@code application.properties} and only one of them is visible on a shared classpath, so
+ * every node loads the file of its own module through {@code spring.config.location}, given by the
+ * {@code masterConfigLocation} and {@code slaveConfigLocation} system properties of the {@code loadTest} task, and
+ * only what differs in this cluster is passed as command line arguments, which take precedence over the file.
+ * Arguments prefixed with {@code master.} or {@code slave.} override the settings of that kind of node, the
+ * replication transport is chosen for both, e.g. {@code --master.replicationTransport=PULL
+ * --slave.replicationTransport=PULL}.
+ */
+final class LocalCluster implements AutoCloseable {
+    private static final String MASTER_CONFIG_LOCATION = System.getProperty("masterConfigLocation",
+            "../master/src/main/resources/application.properties");
+    private static final String SLAVE_CONFIG_LOCATION = System.getProperty("slaveConfigLocation",
+            "../slave/src/main/resources/application.properties");
+    private static final Map<String, String> CLUSTER_PROPERTIES = Map.of(
+            "spring.main.banner-mode", "off",
+            "logging.level.root", "WARN");
+
+    private final ConfigurableApplicationContext master;
+    private final List<ConfigurableApplicationContext> slaves;
+    private final int masterPort;
+
+    private LocalCluster(ConfigurableApplicationContext master, List<ConfigurableApplicationContext> slaves,
+                         int masterPort) {
+        this.master = master;
+        this.slaves = slaves;
+        this.masterPort = masterPort;
+    }
+
+    static LocalCluster start(int slavesCount, String logDirectory, Map<String, String> overrides)
+            throws IOException {
+        var masterPort = freePort();
+        var masterStreamPort = freePort();
+        var slavePorts = new ArrayList<Integer>();
+        for (var i = 0; i < slavesCount; i++) {
+            slavePorts.add(freePort());
+        }
+
+        var masterProperties = nodeProperties(MASTER_CONFIG_LOCATION, "master", logDirectory, masterPort, overrides);
+        masterProperties.put("replicationStreamPort", String.valueOf(masterStreamPort));
+        masterProperties.put("slavesHostsPorts", slavePorts.stream().map(port -> "localhost:" + port)
+                .collect(Collectors.joining(",")));
+        var master = new SpringApplicationBuilder(MasterApplication.class).run(toArgs(masterProperties));
+
+        var slaves = new ArrayList<ConfigurableApplicationContext>();
+        for (var i = 0; i < slavesCount; i++) {
+            var slaveProperties = nodeProperties(SLAVE_CONFIG_LOCATION, "slave" + (i + 1), logDirectory,
+                    slavePorts.get(i), overrides);
+            slaveProperties.put("masterHostPort", "localhost:" + masterPort);
+            slaveProperties.put("masterStreamHostPort", "localhost:" + masterStreamPort);
+            slaves.add(new SpringApplicationBuilder(SlaveApplication.class).run(toArgs(slaveProperties)));
+        }
+        return new LocalCluster(master, slaves, masterPort);
+    }
+
+    private static Map<String, String> nodeProperties(String configLocation, String nodeName, String logDirectory,
+                                                      int port, Map<String, String> overrides) {
+        var properties = new LinkedHashMap<>(CLUSTER_PROPERTIES);
+        properties.put("spring.config.location", "file:" + Path.of(configLocation).toAbsolutePath());
+        properties.put("server.port", String.valueOf(port));
+        if (!logDirectory.isBlank()) {
+            properties.put("logDirectory", Path.of(logDirectory, nodeName).toString());
+        }
+        var prefix = (nodeName.startsWith("slave") ? "slave" : "master") + ".";
+        overrides.forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                properties.put(key.substring(prefix.length()), value);
+            }
+        });
+        return properties;
+    }
+
+    private static String[] toArgs(Map<String, String> properties) {
+        return properties.entrySet().stream().map(property -> "--%s=%s".formatted(property.getKey(),
+                property.getValue())).toArray(String[]::new);
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    int masterPort() {
+        return masterPort;
+    }
+
+    long masterLastSeqNum() {
+        return master.getBean(DataRepository.class).getLastSeqNum();
+    }
+
+    List<Long> replicasLag() {
+        var masterLastSeqNum = masterLastSeqNum();
+        return slaves.stream().map(slave -> Math.max(0, masterLastSeqNum
+                - slave.getBean(DataRepository.class).getLastSeqNum())).toList();
+    }
+
+    @Override
+    public void close() {
+        slaves.forEach(ConfigurableApplicationContext::close);
+        master.close();
+    }
+}
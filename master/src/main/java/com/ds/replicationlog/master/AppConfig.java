@@ -2,9 +2,15 @@ package com.ds.replicationlog.master;
 
 import com.ds.replicationlog.statemachine.DataRepository;
 import com.ds.replicationlog.statemachine.Master;
+import com.ds.replicationlog.statemachine.MasterMetrics;
 import com.ds.replicationlog.statemachine.SlavesClient;
-import com.ds.replicationlog.statemachine.repository.InMemoryRepo;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import com.ds.replicationlog.statemachine.repository.OffHeapRepo;
+import com.ds.replicationlog.statemachine.repository.SegmentedFileRepo;
+import com.ds.replicationlog.statemachine.repository.SnapshottingRepo;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +18,9 @@ import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 
 @SuppressWarnings("unused")
@@ -29,14 +37,48 @@ public class AppConfig {
         return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
     }
 
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public Master master(DataRepository repository, SlavesClient slavesClient, MasterMetrics masterMetrics,
+                         @Value("${minAcknowledgmentsWaitTimeSeconds}") int minAcknowledgmentsWaitTimeSeconds,
+                         @Value("${groupCommitWindowMillis}") int groupCommitWindowMillis,
+                         @Value("${groupCommitMaxBatchSize}") int groupCommitMaxBatchSize,
+                         @Value("${requestIdCacheSize}") int requestIdCacheSize,
+                         @Value("${requestIdRetentionSeconds}") int requestIdRetentionSeconds,
+                         @Value("${replicaExpirySeconds}") int replicaExpirySeconds) {
+        return new Master(repository, Duration.ofSeconds(minAcknowledgmentsWaitTimeSeconds), slavesClient,
+                Duration.ofMillis(groupCommitWindowMillis), groupCommitMaxBatchSize, masterMetrics, requestIdCacheSize,
+                Duration.ofSeconds(requestIdRetentionSeconds), Duration.ofSeconds(replicaExpirySeconds));
+    }
+
+    /**
+     * Slaves pull new elements with long polls of get_data, so there is nobody to push them to.
+     */
     @Bean
-    public Master master(DataRepository repository, SlavesClient slavesClient,
-                         @Value("${minAcknowledgmentsWaitTimeSeconds}") int minAcknowledgmentsWaitTimeSeconds) {
-        return new Master(repository, Duration.ofSeconds(minAcknowledgmentsWaitTimeSeconds), slavesClient);
+    @ConditionalOnProperty(name = "replicationTransport", havingValue = "PULL")
+    public SlavesClient pullSlavesClient() {
+        return dataElements -> CompletableFuture.completedFuture(null);
     }
 
     @Bean
-    public DataRepository repository() {
-        return new InMemoryRepo();
+    public DataRepository repository(@Value("${logDirectory}") String logDirectory,
+                                     @Value("${logOffHeap}") boolean logOffHeap,
+                                     @Value("${logSegmentSizeBytes}") int logSegmentSizeBytes,
+                                     @Value("${logFsyncPolicy}") SegmentedFileRepo.FsyncPolicy logFsyncPolicy,
+                                     @Value("${logFsyncIntervalMillis}") int logFsyncIntervalMillis,
+                                     @Value("${snapshotDirectory}") String snapshotDirectory,
+                                     @Value("${snapshotIntervalSeconds}") int snapshotIntervalSeconds,
+                                     @Value("${logRetainedElements}") long logRetainedElements) {
+        TruncatableRepository log;
+        if (!logDirectory.isBlank()) {
+            log = new SegmentedFileRepo(Path.of(logDirectory), logSegmentSizeBytes, logFsyncPolicy,
+                    Duration.ofMillis(logFsyncIntervalMillis));
+        } else {
+            log = logOffHeap ? new OffHeapRepo() : new ChunkedArrayRepo();
+        }
+        if (snapshotDirectory.isBlank()) {
+            return log;
+        }
+        return new SnapshottingRepo(log, Path.of(snapshotDirectory), logRetainedElements,
+                Duration.ofSeconds(snapshotIntervalSeconds));
     }
 }
@@ -0,0 +1,39 @@
+package com.ds.replicationlog.master.client;
+
+import com.ds.replicationlog.statemachine.DataElement;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The last element dropped for a full replication queue. It is pushed again once the queue drains, so the slave learns
+ * how far it lags and fills the gap from master even if no later element is pushed to it.
+ */
+final class DroppedTail {
+    private static final long CHECK_INTERVAL_MS = 100;
+
+    private final AtomicReference<DataElement> dataElement = new AtomicReference<>();
+
+    void dropped(DataElement dropped) {
+        dataElement.accumulateAndGet(dropped, (last, next) ->
+                last == null || next.sequenceNum() > last.sequenceNum() ? next : last);
+    }
+
+    /**
+     * Takes the next queued element, or the dropped one if the queue is empty.
+     */
+    QueuedElement next(BlockingQueue<QueuedElement> queue) throws InterruptedException {
+        while (true) {
+            // Polled with a timeout, as an element may be dropped just before the queue drains
+            var queuedElement = queue.poll(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (queuedElement != null) {
+                return queuedElement;
+            }
+            var dropped = dataElement.getAndSet(null);
+            if (dropped != null) {
+                return new QueuedElement(dropped, new ReplicationCompletion(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.ds.replicationlog.master.client;
+
+import com.ds.replicationlog.statemachine.DataElement;
+
+record QueuedElement(DataElement dataElement, ReplicationCompletion completion) {
+}
@@ -0,0 +1,26 @@
+package com.ds.replicationlog.master.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completes its future once every element of a replication request has been handled for every slave.
+ */
+final class ReplicationCompletion {
+    private final AtomicInteger remaining;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    ReplicationCompletion(int count) {
+        this.remaining = new AtomicInteger(count);
+    }
+
+    void done() {
+        if (remaining.decrementAndGet() == 0) {
+            future.complete(null);
+        }
+    }
+
+    CompletableFuture<Void> future() {
+        return future;
+    }
+}
@@ -0,0 +1,9 @@
+package com.ds.replicationlog.master.client;
+
+/**
+ * Encoding of replication requests sent to slaves. A slave which rejects {@link #BINARY} with 415 Unsupported Media
+ * Type is switched to {@link #JSON}.
+ */
+public enum ReplicationEncoding {
+    JSON, BINARY
+}
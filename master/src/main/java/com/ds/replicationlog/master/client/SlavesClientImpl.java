@@ -2,76 +2,221 @@ package com.ds.replicationlog.master.client;
 
 import com.ds.replicationlog.statemachine.DataElement;
 import com.ds.replicationlog.statemachine.SlavesClient;
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.ds.replicationlog.statemachine.http.HttpClients;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 
 @Component
-public class SlavesClientImpl implements SlavesClient {
+@ConditionalOnProperty(name = "replicationTransport", havingValue = "HTTP", matchIfMissing = true)
+public class SlavesClientImpl implements SlavesClient, AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private final List<String> appendEndpoints;
+    private final List<SlavePipeline> slavePipelines;
     private final Duration slaveRequestTimeout;
+    private final int replicationBatchSize;
+    private final ReplicationEncoding replicationEncoding;
+    private final ByteBufferPool bufferPool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
 
     public SlavesClientImpl(@Value("${slavesHostsPorts}") List<String> hostsPorts,
-                            @Value("${slaveRequestTimeoutSeconds}") int slaveRequestTimeoutSeconds) {
+                            @Value("${slaveRequestTimeoutSeconds}") int slaveRequestTimeoutSeconds,
+                            @Value("${slaveHttpVersion}") HttpClient.Version slaveHttpVersion,
+                            @Value("${slaveReplicationWindow}") int replicationWindow,
+                            @Value("${slaveReplicationBatchSize}") int replicationBatchSize,
+                            @Value("${slaveReplicationQueueCapacity}") int replicationQueueCapacity,
+                            @Value("${slaveReplicationEncoding}") ReplicationEncoding replicationEncoding) {
         if (hostsPorts.isEmpty()) {
             throw new IllegalArgumentException("Hosts ports cannot be empty");
         }
-        this.appendEndpoints = hostsPorts.stream().map("http://%s/slave/replication/append_data"::formatted)
-                .collect(Collectors.toList());
+        if (replicationBatchSize < 1) {
+            throw new IllegalArgumentException("Replication batch size must be positive");
+        }
+        if (replicationWindow < replicationBatchSize) {
+            throw new IllegalArgumentException("Replication window cannot be smaller than replication batch size");
+        }
+        if (replicationQueueCapacity < 1) {
+            throw new IllegalArgumentException("Replication queue capacity must be positive");
+        }
         this.slaveRequestTimeout = Duration.ofSeconds(slaveRequestTimeoutSeconds);
+        this.replicationBatchSize = replicationBatchSize;
+        this.replicationEncoding = requireNonNull(replicationEncoding);
+        this.slavePipelines = hostsPorts.stream().map(hostPort -> new SlavePipeline(hostPort,
+                        HttpClients.create(slaveHttpVersion, slaveRequestTimeout), replicationWindow,
+                        replicationQueueCapacity))
+                .collect(Collectors.toList());
     }
 
     @Override
-    public void appendData(DataElement dataElement) {
-        requireNonNull(dataElement);
-        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            appendEndpoints.forEach(endpoint -> executor.submit(() -> sendRequest(endpoint, dataElement)));
+    public CompletableFuture<Void> appendData(List<DataElement> dataElements) {
+        dataElements.forEach(Objects::requireNonNull);
+        if (dataElements.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
+        var completion = new ReplicationCompletion(dataElements.size() * slavePipelines.size());
+        slavePipelines.forEach(pipeline -> dataElements.forEach(dataElement ->
+                pipeline.enqueue(new QueuedElement(dataElement, completion))));
+        return completion.future();
     }
 
-    private void sendRequest(String endpoint, DataElement dataElement) {
-        try {
-            var status = sendHttpRequest(endpoint, dataElement);
-            if (status != HttpURLConnection.HTTP_OK) {
-                logger.warn("Failed to send data update to slave, status: {}", status);
+    @Override
+    public void close() {
+        slavePipelines.forEach(SlavePipeline::close);
+    }
+
+    /**
+     * Replicates to one slave. Batches leave the queue in sequence order, but up to {@code replicationWindow}
+     * elements are in flight at once, in requests sent over separate HTTP/1.1 connections or HTTP/2 streams and
+     * handled by separate threads of the slave, so the slave may receive them out of order. Their order is restored by
+     * the reorder window of the slave, which therefore has to be at least as wide as the replication window.
+     */
+    private final class SlavePipeline {
+        private final String hostPort;
+        private final URI appendUri;
+        private final URI appendBatchUri;
+        private final HttpClient httpClient;
+        private final BlockingQueue<QueuedElement> queue;
+        private final Semaphore window;
+        private final DroppedTail droppedTail = new DroppedTail();
+        private final Thread sender;
+        private volatile boolean binaryEncoding;
+
+        private SlavePipeline(String hostPort, HttpClient httpClient, int replicationWindow,
+                              int replicationQueueCapacity) {
+            this.hostPort = hostPort;
+            this.appendUri = URI.create("http://%s/slave/replication/append_data".formatted(hostPort));
+            this.appendBatchUri = URI.create("http://%s/slave/replication/append_batch".formatted(hostPort));
+            this.httpClient = httpClient;
+            this.queue = new LinkedBlockingQueue<>(replicationQueueCapacity);
+            this.window = new Semaphore(replicationWindow);
+            this.binaryEncoding = replicationEncoding == ReplicationEncoding.BINARY;
+            this.sender = Thread.ofVirtual().name("replication-" + hostPort).start(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        sendNextBatch();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        private void enqueue(QueuedElement queuedElement) {
+            if (!queue.offer(queuedElement)) {
+                logger.warn("Replication queue of slave {} is full, element {} is left for slave catch up",
+                        hostPort, queuedElement.dataElement().sequenceNum());
+                droppedTail.dropped(queuedElement.dataElement());
+                queuedElement.completion().done();
             }
-        } catch (Exception e) {
-            logger.warn("Failed to send data update to slave", e);
         }
-    }
 
-    private int sendHttpRequest(String uri, DataElement dataElement) throws URISyntaxException, IOException,
-            InterruptedException {
-        byte[] dataElementBytes = objectMapper.writeValueAsString(dataElement).getBytes();
-        var request = HttpRequest.newBuilder()
-                .uri(new URI(uri))
-                .timeout(slaveRequestTimeout)
-                .headers("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(dataElementBytes)))
-                .build();
-
-        try (var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
-            return client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+        private void sendNextBatch() throws InterruptedException {
+            var batch = new ArrayList<QueuedElement>(replicationBatchSize);
+            batch.add(droppedTail.next(queue));
+            queue.drainTo(batch, replicationBatchSize - 1);
+            window.acquire(batch.size());
+            // Not chained to the previous batch, so the window keeps the link busy; the slave reorders arrivals
+            send(batch).whenComplete((result, e) -> {
+                window.release(batch.size());
+                batch.forEach(queuedElement -> queuedElement.completion().done());
+            });
+        }
+
+        private CompletableFuture<Void> send(List<QueuedElement> batch) {
+            return sendDataElements(batch.stream().map(QueuedElement::dataElement).toList());
+        }
+
+        private CompletableFuture<Void> sendDataElements(List<DataElement> dataElements) {
+            try {
+                return binaryEncoding ? sendBinary(dataElements) : sendJson(dataElements);
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                logger.warn("Failed to serialize data update for slave", e);
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        private CompletableFuture<Void> sendJson(List<DataElement> dataElements) throws JsonProcessingException {
+            return dataElements.size() > 1
+                    ? sendRequest(appendBatchUri, "application/json",
+                            HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(dataElements)))
+                            .handle(this::logResponse)
+                    : sendRequest(appendUri, "application/json",
+                            HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+                                    dataElements.getFirst())))
+                            .handle(this::logResponse);
+        }
+
+        private CompletableFuture<Void> sendBinary(List<DataElement> dataElements) {
+            var buffer = bufferPool.acquire(BinaryDataElementCodec.maxEncodedLength(dataElements));
+            BinaryDataElementCodec.encode(dataElements, buffer);
+            var body = HttpRequest.BodyPublishers.ofByteArray(buffer.array(), buffer.arrayOffset(),
+                    buffer.position());
+            return sendRequest(appendBatchUri, BinaryDataElementCodec.MEDIA_TYPE, body)
+                    .handle((response, e) -> {
+                        // A failed exchange may still be reading the body, so only a completed one gives it back
+                        if (e == null) {
+                            bufferPool.release(buffer);
+                        }
+                        if (e == null && response.statusCode() == HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+                            logger.warn("Slave {} does not accept binary replication, falling back to JSON", hostPort);
+                            binaryEncoding = false;
+                            return sendDataElements(dataElements);
+                        }
+                        return CompletableFuture.completedFuture(logResponse(response, e));
+                    })
+                    .thenCompose(Function.identity());
+        }
+
+        private CompletableFuture<HttpResponse<Void>> sendRequest(URI uri, String contentType,
+                                                                  HttpRequest.BodyPublisher body) {
+            var request = HttpRequest.newBuilder()
+                    .uri(uri)
+                    .timeout(slaveRequestTimeout)
+                    .headers("Content-Type", contentType)
+                    .POST(body)
+                    .build();
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+
+        private Void logResponse(HttpResponse<Void> response, Throwable e) {
+            if (e != null) {
+                logger.warn("Failed to send data update to slave", e);
+            } else if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                logger.warn("Failed to send data update to slave, status: {}", response.statusCode());
+            }
+            return null;
+        }
+
+        private void close() {
+            sender.interrupt();
+            httpClient.close();
         }
     }
 }
@@ -0,0 +1,202 @@
+package com.ds.replicationlog.master.client;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.Master;
+import com.ds.replicationlog.statemachine.SlavesClient;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.ds.replicationlog.statemachine.codec.ReplicationStreamCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replicates over long-lived TCP connections which slaves open to the master, instead of a request per batch.
+ * Each connection gets the ordered stream of data frames written by its own sender, which batches whatever has been
+ * queued meanwhile and flushes only when it runs out of elements, and carries acknowledgement frames back to
+ * {@link Master}. Slaves are not known in advance, an append is replicated to the slaves connected at that moment.
+ */
+@Component
+@ConditionalOnProperty(name = "replicationTransport", havingValue = "STREAM")
+public class StreamingSlavesClient implements SlavesClient, AutoCloseable {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private final Set<SlaveConnection> connections = ConcurrentHashMap.newKeySet();
+    private final ByteBufferPool bufferPool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final Master master;
+    private final int replicationBatchSize;
+    private final int replicationQueueCapacity;
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+
+    public StreamingSlavesClient(@Lazy Master master,
+                                 @Value("${replicationStreamPort}") int replicationStreamPort,
+                                 @Value("${slaveReplicationBatchSize}") int replicationBatchSize,
+                                 @Value("${slaveReplicationQueueCapacity}") int replicationQueueCapacity)
+            throws IOException {
+        this.master = requireNonNull(master);
+        if (replicationBatchSize < 1) {
+            throw new IllegalArgumentException("Replication batch size must be positive");
+        }
+        if (replicationQueueCapacity < 1) {
+            throw new IllegalArgumentException("Replication queue capacity must be positive");
+        }
+        this.replicationBatchSize = replicationBatchSize;
+        this.replicationQueueCapacity = replicationQueueCapacity;
+        this.serverSocket = new ServerSocket(replicationStreamPort);
+        this.acceptor = Thread.ofVirtual().name("replication-stream-acceptor").start(this::acceptConnections);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var connection = new SlaveConnection(serverSocket.accept());
+                connections.add(connection);
+                connection.start();
+                logger.info("Slave {} has connected to replication stream", connection.address);
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept replication stream connection", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> appendData(List<DataElement> dataElements) {
+        dataElements.forEach(Objects::requireNonNull);
+        var currentConnections = List.copyOf(connections);
+        if (dataElements.isEmpty() || currentConnections.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        var completion = new ReplicationCompletion(dataElements.size() * currentConnections.size());
+        currentConnections.forEach(connection -> dataElements.forEach(dataElement ->
+                connection.enqueue(new QueuedElement(dataElement, completion))));
+        return completion.future();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        acceptor.interrupt();
+        connections.forEach(SlaveConnection::close);
+    }
+
+    private final class SlaveConnection {
+        private final Socket socket;
+        private final String address;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final BlockingQueue<QueuedElement> queue;
+        private final DroppedTail droppedTail = new DroppedTail();
+        private final Thread sender;
+        private final Thread receiver;
+
+        private SlaveConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.address = String.valueOf(socket.getRemoteSocketAddress());
+            socket.setTcpNoDelay(true);
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.queue = new LinkedBlockingQueue<>(replicationQueueCapacity);
+            this.sender = Thread.ofVirtual().name("replication-stream-sender-" + address).unstarted(this::sendBatches);
+            this.receiver = Thread.ofVirtual().name("replication-stream-receiver-" + address)
+                    .unstarted(this::receiveAcknowledgements);
+        }
+
+        private void start() {
+            sender.start();
+            receiver.start();
+        }
+
+        private void enqueue(QueuedElement queuedElement) {
+            if (!queue.offer(queuedElement)) {
+                logger.warn("Replication queue of slave {} is full, element {} is left for slave catch up",
+                        address, queuedElement.dataElement().sequenceNum());
+                droppedTail.dropped(queuedElement.dataElement());
+                queuedElement.completion().done();
+            }
+        }
+
+        private void sendBatches() {
+            var batch = new ArrayList<QueuedElement>(replicationBatchSize);
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    batch.add(droppedTail.next(queue));
+                    queue.drainTo(batch, replicationBatchSize - 1);
+                    try {
+                        ReplicationStreamCodec.writeDataElements(out,
+                                batch.stream().map(QueuedElement::dataElement).toList(), bufferPool);
+                        if (queue.isEmpty()) {
+                            out.flush();
+                        }
+                    } finally {
+                        batch.forEach(queuedElement -> queuedElement.completion().done());
+                        batch.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                logger.warn("Failed to stream data to slave {}", address, e);
+            }
+            close();
+        }
+
+        private void receiveAcknowledgements() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    master.acknowledgeReception(ReplicationStreamCodec.readAcknowledgement(in));
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    logger.info("Slave {} has disconnected from replication stream", address);
+                }
+            }
+            close();
+        }
+
+        private void close() {
+            if (!connections.remove(this)) {
+                return;
+            }
+            sender.interrupt();
+            receiver.interrupt();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close replication stream of slave {}", address, e);
+            }
+            var remaining = new ArrayList<QueuedElement>();
+            queue.drainTo(remaining);
+            remaining.forEach(queuedElement -> queuedElement.completion().done());
+        }
+    }
+}
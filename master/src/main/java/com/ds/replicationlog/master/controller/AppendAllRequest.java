@@ -0,0 +1,12 @@
+package com.ds.replicationlog.master.controller;
+
+import java.util.List;
+
+/**
+ * {@code requestId} is optional; when set, a retry with the same id is not appended again.
+ */
+public record AppendAllRequest(List<String> data, int minAcknowledgments, String requestId) {
+    public AppendAllRequest(List<String> data, int minAcknowledgments) {
+        this(data, minAcknowledgments, null);
+    }
+}
@@ -0,0 +1,4 @@
+package com.ds.replicationlog.master.controller;
+
+public record AppendAllResponse(long firstSeqNum, long lastSeqNum) {
+}
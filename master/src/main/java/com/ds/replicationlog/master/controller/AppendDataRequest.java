@@ -1,4 +1,10 @@
 package com.ds.replicationlog.master.controller;
 
-public record AppendDataRequest(String data, int minAcknowledgments) {
+/**
+ * {@code requestId} is optional; when set, a retry with the same id is not appended again.
+ */
+public record AppendDataRequest(String data, int minAcknowledgments, String requestId) {
+    public AppendDataRequest(String data, int minAcknowledgments) {
+        this(data, minAcknowledgments, null);
+    }
 }
@@ -6,6 +6,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.concurrent.TimeoutException;
 
@@ -19,6 +20,12 @@ public class ExceptionsHandler {
         return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body("Timeout during request processing");
     }
 
+    @ExceptionHandler({ResponseStatusException.class})
+    public ResponseEntity<Object> handleResponseStatusException(ResponseStatusException exception) {
+        logger.warn("Request has been rejected", exception);
+        return ResponseEntity.status(exception.getStatusCode()).body(exception.getReason());
+    }
+
     @ExceptionHandler({RuntimeException.class})
     public ResponseEntity<Object> handleRuntimeException(RuntimeException exception) {
         logger.warn("Request has failed because of internal error", exception);
@@ -3,19 +3,29 @@ package com.ds.replicationlog.master.controller;
 import com.ds.replicationlog.statemachine.Acknowledgement;
 import com.ds.replicationlog.statemachine.DataElement;
 import com.ds.replicationlog.statemachine.Master;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Hidden;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
 import static java.util.Objects.requireNonNull;
@@ -26,35 +36,143 @@ public class MasterController {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private final Master master;
+    private final ObjectMapper objectMapper;
 
-    public MasterController(Master master) {
+    public MasterController(Master master, ObjectMapper objectMapper) {
         this.master = requireNonNull(master);
+        this.objectMapper = requireNonNull(objectMapper);
     }
 
     @PostMapping("data/append_data")
     public void appendData(@RequestBody AppendDataRequest appendDataRequest) throws TimeoutException {
         logger.debug("Append data was called for: {}", appendDataRequest);
         try {
-            master.appendData(appendDataRequest.minAcknowledgments(), appendDataRequest.data());
+            master.appendData(appendDataRequest.minAcknowledgments(), appendDataRequest.data(),
+                    appendDataRequest.requestId());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Operation was interrupted", e);
         }
     }
 
+    /**
+     * Same as append_data without holding a thread, with zero minAcknowledgments it responds once committed.
+     */
+    @PostMapping(value = "data/append_data_async", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<AppendDataResponse> appendDataAsync(@RequestBody AppendDataRequest appendDataRequest) {
+        logger.debug("Append data async was called for: {}", appendDataRequest);
+        return master.appendDataAsync(appendDataRequest.minAcknowledgments(), appendDataRequest.data(),
+                appendDataRequest.requestId()).thenApply(AppendDataResponse::new);
+    }
+
+    /**
+     * Appends the batch as one contiguous range, a retried requestId responds with the range of the original batch.
+     */
+    @PostMapping(value = "data/append_all", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<AppendAllResponse> appendAll(@RequestBody AppendAllRequest appendAllRequest) {
+        var data = appendAllRequest.data();
+        requireValid(data != null && !data.isEmpty() && !data.contains(null),
+                "Data must be a non-empty list of elements");
+        logger.debug("Append all was called for {} elements", data.size());
+        return master.appendAllAsync(appendAllRequest.minAcknowledgments(), data, appendAllRequest.requestId())
+                .thenApply(seqNums -> new AppendAllResponse(seqNums.firstSeqNum(), seqNums.lastSeqNum()));
+    }
+
+    /**
+     * Waits up to waitMillis for minAcknowledgments and responds with the acknowledgments reached by then.
+     */
+    @GetMapping(value = "data/replication_status/{seqNum}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ReplicationStatus> getReplicationStatus(@PathVariable long seqNum,
+                                                                     @RequestParam(defaultValue = "1")
+                                                                     int minAcknowledgments,
+                                                                     @RequestParam(defaultValue = "0")
+                                                                     long waitMillis) {
+        logger.debug("Replication status was requested for seqNum: {}, minAcknowledgments: {}, waitMillis: {}",
+                seqNum, minAcknowledgments, waitMillis);
+        requireValid(minAcknowledgments >= 0, "minAcknowledgments cannot be negative");
+        requireValid(waitMillis >= 0, "waitMillis cannot be negative");
+        return master.awaitReplication(seqNum, minAcknowledgments, Duration.ofMillis(waitMillis))
+                .thenApply(acknowledgments -> new ReplicationStatus(seqNum, acknowledgments));
+    }
+
+    /**
+     * Streams the log as a JSON array read lazily from the repository.
+     */
     @GetMapping(value = "data/get_data", produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseBody
-    public List<DataElement> getData() {
+    public StreamingResponseBody getData() {
         logger.debug("Get data was executed");
-        return master.getData(0);
+        var dataElements = master.iterateData(0);
+        return outputStream -> {
+            try (var generator = createGenerator(outputStream)) {
+                generator.writeStartArray();
+                while (dataElements.hasNext()) {
+                    generator.writePOJO(dataElements.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Same as get_data, but as newline delimited JSON, one element per line.
+     */
+    @GetMapping(value = "data/get_data", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody getDataNdjson() {
+        logger.debug("Get data as NDJSON was executed");
+        var dataElements = master.iterateData(0);
+        return outputStream -> {
+            try (var generator = createGenerator(outputStream)) {
+                while (dataElements.hasNext()) {
+                    generator.writePOJO(dataElements.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+    }
+
+    private JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+        var generator = objectMapper.createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
     }
 
     @Hidden
     @GetMapping(value = "data/get_data/{fromSeqNum}", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
-    public List<DataElement> getData(@PathVariable long fromSeqNum) {
-        logger.debug("Get data was executed for fromSeqNum: {}", fromSeqNum);
-        return master.getData(fromSeqNum);
+    public List<DataElement> getData(@PathVariable long fromSeqNum,
+                                     @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit,
+                                     @RequestParam(defaultValue = "" + Long.MAX_VALUE) long maxBytes,
+                                     @RequestParam(defaultValue = "0") long waitMillis) {
+        logger.debug("Get data was executed for fromSeqNum: {}, limit: {}, maxBytes: {}, waitMillis: {}", fromSeqNum,
+                limit, maxBytes, waitMillis);
+        requireValid(limit > 0, "limit must be positive");
+        requireValid(maxBytes > 0, "maxBytes must be positive");
+        requireValid(waitMillis >= 0, "waitMillis cannot be negative");
+        if (waitMillis == 0) {
+            return master.getData(fromSeqNum, limit, maxBytes);
+        }
+        try {
+            return master.awaitData(fromSeqNum, limit, maxBytes, Duration.ofMillis(waitMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Operation was interrupted", e);
+        }
+    }
+
+    private static void requireValid(boolean valid, String message) {
+        if (!valid) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, message);
+        }
+    }
+
+    /**
+     * Streams the snapshot of the log, empty when master does not keep one.
+     */
+    @Hidden
+    @GetMapping(value = "data/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public StreamingResponseBody getSnapshot() {
+        logger.debug("Get snapshot was executed");
+        return master::transferSnapshot;
     }
 
     @Hidden
@@ -0,0 +1,4 @@
+package com.ds.replicationlog.master.controller;
+
+public record ReplicationStatus(long seqNum, int acknowledgments) {
+}
@@ -0,0 +1,106 @@
+package com.ds.replicationlog.master.metrics;
+
+import com.ds.replicationlog.statemachine.MasterMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+@Component
+public class MicrometerMasterMetrics implements MasterMetrics {
+    private static final String REPLICA_ACKNOWLEDGED_SEQ = "replication.master.replica.acknowledged.seq";
+
+    private final MeterRegistry registry;
+    private final int replicasCount;
+    private final Timer repositoryAppendTimer;
+    private final DistributionSummary commitBatchSize;
+    private final Timer replicasUpdateSuccessTimer;
+    private final Timer replicasUpdateFailureTimer;
+    private final Map<String, Timer> acknowledgementsWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> replicasAcknowledgedSeqNums = new ConcurrentHashMap<>();
+
+    public MicrometerMasterMetrics(MeterRegistry registry,
+                                   @Value("${slavesHostsPorts}") List<String> slavesHostsPorts) {
+        this.registry = requireNonNull(registry);
+        this.replicasCount = slavesHostsPorts.size();
+        this.repositoryAppendTimer = Timer.builder("replication.master.repository.append")
+                .description("Time to append a group commit batch to the repository")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.commitBatchSize = DistributionSummary.builder("replication.master.commit.batch.size")
+                .description("Elements per group commit batch")
+                .register(registry);
+        this.replicasUpdateSuccessTimer = replicasUpdateTimer("success");
+        this.replicasUpdateFailureTimer = replicasUpdateTimer("failure");
+    }
+
+    private Timer replicasUpdateTimer(String outcome) {
+        return Timer.builder("replication.master.replicas.update")
+                .description("Time from handing a batch to the slaves client until every slave has answered")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public void repositoryAppended(int batchSize, long durationNanos) {
+        repositoryAppendTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        commitBatchSize.record(batchSize);
+    }
+
+    @Override
+    public void replicasUpdated(int batchSize, long durationNanos, boolean successful) {
+        (successful ? replicasUpdateSuccessTimer : replicasUpdateFailureTimer)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void acknowledgementsAwaited(int minAcknowledgments, long durationNanos, boolean successful) {
+        var outcome = successful ? "success" : "failure";
+        // Chosen by clients, so values above the replicas count share one tag
+        var minAcknowledgmentsTag = minAcknowledgments > replicasCount ? ">" + replicasCount
+                : String.valueOf(minAcknowledgments);
+        acknowledgementsWaitTimers.computeIfAbsent(minAcknowledgmentsTag + outcome, key ->
+                Timer.builder("replication.master.acknowledgements.wait")
+                        .description("Time an append waits for its minimal amount of acknowledgements")
+                        .tag("minAcknowledgments", minAcknowledgmentsTag)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void replicaAcknowledged(String replicaId, long sequenceNum) {
+        replicasAcknowledgedSeqNums.computeIfAbsent(replicaId, key -> {
+            var acknowledgedSeqNum = new AtomicLong();
+            Gauge.builder(REPLICA_ACKNOWLEDGED_SEQ, acknowledgedSeqNum, AtomicLong::get)
+                    .description("Last sequence number acknowledged by a replica")
+                    .tag("replica", replicaId)
+                    .register(registry);
+            return acknowledgedSeqNum;
+        }).set(sequenceNum);
+    }
+
+    @Override
+    public void replicaExpired(String replicaId) {
+        // Removed within the map operation, so a replica acknowledging meanwhile gets its gauge registered again
+        replicasAcknowledgedSeqNums.computeIfPresent(replicaId, (key, acknowledgedSeqNum) -> {
+            var gauge = registry.find(REPLICA_ACKNOWLEDGED_SEQ).tag("replica", replicaId).gauge();
+            if (gauge != null) {
+                registry.remove(gauge);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.ds.replicationlog.master.client;
+
+import com.ds.replicationlog.statemachine.http.HttpClients;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Measures requests per second against a running slave for a client created per request (the former behaviour of
+ * the replication clients) and for shared HTTP/1.1 and HTTP/2 clients.
+ * <p>
+ * Run with {@code ./gradlew :master:httpClientBenchmark -PslaveHostPort=localhost:8081}.
+ */
+public class HttpClientBenchmark {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(10);
+    private static final int CONCURRENCY = 32;
+
+    public static void main(String[] args) throws InterruptedException {
+        var uri = URI.create("http://%s/slave/data/get_data".formatted(args.length > 0 ? args[0] : "localhost:8081"));
+
+        run("client per request, HTTP/1.1", uri, () -> HttpClients.create(HttpClient.Version.HTTP_1_1, TIMEOUT),
+                true);
+        try (var shared = HttpClients.create(HttpClient.Version.HTTP_1_1, TIMEOUT)) {
+            run("shared client, HTTP/1.1", uri, () -> shared, false);
+        }
+        try (var shared = HttpClients.create(HttpClient.Version.HTTP_2, TIMEOUT)) {
+            run("shared client, HTTP/2 (h2c)", uri, () -> shared, false);
+        }
+    }
+
+    private static void run(String name, URI uri, Supplier<HttpClient> clients, boolean closeAfterRequest)
+            throws InterruptedException {
+        var request = HttpRequest.newBuilder().uri(uri).timeout(TIMEOUT).GET().build();
+        var completed = new AtomicLong();
+        var failed = new AtomicLong();
+        var deadline = System.nanoTime() + DURATION.toNanos();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < CONCURRENCY; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        var client = clients.get();
+                        try {
+                            client.send(request, HttpResponse.BodyHandlers.discarding());
+                            completed.incrementAndGet();
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        } finally {
+                            if (closeAfterRequest) {
+                                client.close();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        System.out.printf("%-32s %10.1f requests/s, %d failed%n", name,
+                completed.get() / (double) DURATION.toSeconds(), failed.get());
+    }
+}
@@ -1,7 +1,9 @@
 package com.ds.replicationlog.master.client;
 
 import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,10 +13,15 @@ import org.mockserver.integration.ClientAndServer;
 import org.mockserver.verify.VerificationTimes;
 
 import java.net.HttpURLConnection;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
@@ -25,7 +32,8 @@ import static org.mockserver.model.StringBody.exact;
 
 public class SlavesClientImplTest {
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final SlavesClientImpl client = new SlavesClientImpl(List.of("localhost:8080", "localhost:8081"), 2);
+    private final SlavesClientImpl client = new SlavesClientImpl(List.of("localhost:8080", "localhost:8081"), 2,
+            HttpClient.Version.HTTP_1_1, 16, 4, 100, ReplicationEncoding.JSON);
 
     private ClientAndServer mockServer1;
     private ClientAndServer mockServer2;
@@ -38,13 +46,27 @@ public class SlavesClientImplTest {
 
     @AfterEach
     void tearDown() {
+        client.close();
         mockServer1.stop();
         mockServer2.stop();
     }
 
     @Test
     public void constructionForEmptyHostsPortsFails() {
-        assertThrows(IllegalArgumentException.class, () -> new SlavesClientImpl(List.of(), 2));
+        assertThrows(IllegalArgumentException.class, () -> new SlavesClientImpl(List.of(), 2,
+                HttpClient.Version.HTTP_1_1, 16, 4, 100, ReplicationEncoding.JSON));
+    }
+
+    @Test
+    public void constructionForWindowSmallerThanBatchSizeFails() {
+        assertThrows(IllegalArgumentException.class, () -> new SlavesClientImpl(List.of("localhost:8080"), 2,
+                HttpClient.Version.HTTP_1_1, 2, 4, 100, ReplicationEncoding.JSON));
+    }
+
+    @Test
+    public void constructionForNonPositiveQueueCapacityFails() {
+        assertThrows(IllegalArgumentException.class, () -> new SlavesClientImpl(List.of("localhost:8080"), 2,
+                HttpClient.Version.HTTP_1_1, 16, 4, 0, ReplicationEncoding.JSON));
     }
 
     @Test
@@ -58,7 +80,7 @@ public class SlavesClientImplTest {
         mockServer(8081, HttpURLConnection.HTTP_OK, 0);
         var dataElement = new DataElement("data", 1);
 
-        client.appendData(dataElement);
+        client.appendData(List.of(dataElement)).join();
 
         verifyRequestSent(8080, dataElement);
         verifyRequestSent(8081, dataElement);
@@ -94,7 +116,7 @@ public class SlavesClientImplTest {
         mockServer(8081, HttpURLConnection.HTTP_OK, 0);
         var dataElement = new DataElement("data", 1);
 
-        client.appendData(dataElement);
+        client.appendData(List.of(dataElement)).join();
 
         verifyRequestSent(8080, dataElement);
         verifyRequestSent(8081, dataElement);
@@ -106,11 +128,29 @@ public class SlavesClientImplTest {
         mockServer(8081, HttpURLConnection.HTTP_OK, 0);
         var dataElement = new DataElement("data", 1);
 
-        client.appendData(dataElement);
+        client.appendData(List.of(dataElement)).join();
 
         verifyRequestSent(8081, dataElement);
     }
 
+    @Test
+    public void appendDataReusesConnectionToSlave() throws JsonProcessingException {
+        mockServer(8080, HttpURLConnection.HTTP_OK, 0);
+        mockServer(8080, HttpURLConnection.HTTP_OK, 0);
+        mockServer(8081, HttpURLConnection.HTTP_OK, 0);
+        mockServer(8081, HttpURLConnection.HTTP_OK, 0);
+        var dataElement1 = new DataElement("data1", 1);
+        var dataElement2 = new DataElement("data2", 2);
+
+        client.appendData(List.of(dataElement1)).join();
+        client.appendData(List.of(dataElement2)).join();
+
+        verifyRequestSent(8080, dataElement1);
+        verifyRequestSent(8080, dataElement2);
+        verifyRequestSent(8081, dataElement1);
+        verifyRequestSent(8081, dataElement2);
+    }
+
     @Test
     public void appendSendsRequestsInParallel() throws JsonProcessingException {
         mockServer(8080, HttpURLConnection.HTTP_OK, 2_000);
@@ -118,10 +158,152 @@ public class SlavesClientImplTest {
         var dataElement = new DataElement("data", 1);
 
         long startNanos = System.nanoTime();
-        client.appendData(dataElement);
+        client.appendData(List.of(dataElement)).join();
 
         verifyRequestSent(8080, dataElement);
         verifyRequestSent(8081, dataElement);
         assertTrue(3_000 > Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
     }
+
+    @Test
+    public void appendDataDoesNotBlockUntilSlavesRespond() throws JsonProcessingException {
+        mockServer(8080, HttpURLConnection.HTTP_OK, 2_000);
+        mockServer(8081, HttpURLConnection.HTTP_OK, 0);
+        var dataElement = new DataElement("data", 1);
+
+        long startNanos = System.nanoTime();
+        var result = client.appendData(List.of(dataElement));
+
+        assertTrue(1_000 > Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
+        result.join();
+        verifyRequestSent(8080, dataElement);
+        verifyRequestSent(8081, dataElement);
+    }
+
+    @Test
+    public void appendDataSendsElementsToSlaveInOrderWithinWindow() throws JsonProcessingException {
+        var windowedClient = new SlavesClientImpl(List.of("localhost:8080"), 2, HttpClient.Version.HTTP_1_1,
+                1, 1, 100, ReplicationEncoding.JSON);
+        var dataElement1 = new DataElement("data1", 1);
+        var dataElement2 = new DataElement("data2", 2);
+        mockServer(8080, HttpURLConnection.HTTP_OK, 500);
+        mockServer(8080, HttpURLConnection.HTTP_OK, 500);
+
+        long startNanos = System.nanoTime();
+        windowedClient.appendData(List.of(dataElement1, dataElement2)).join();
+        windowedClient.close();
+
+        assertTrue(1_000 <= Duration.ofNanos(System.nanoTime() - startNanos).toMillis());
+        //noinspection resource
+        new MockServerClient("localhost", 8080).verify(
+                request().withPath("/slave/replication/append_data")
+                        .withBody(exact(objectMapper.writeValueAsString(dataElement1))),
+                request().withPath("/slave/replication/append_data")
+                        .withBody(exact(objectMapper.writeValueAsString(dataElement2))));
+    }
+
+    @Test
+    public void appendDataPushesLastElementDroppedForFullQueueOnceQueueDrains() throws Exception {
+        var boundedClient = new SlavesClientImpl(List.of("localhost:8080"), 2, HttpClient.Version.HTTP_1_1,
+                1, 1, 1, ReplicationEncoding.JSON);
+        //noinspection resource
+        new MockServerClient("127.0.0.1", 8080).when(request().withMethod("POST"))
+                .respond(response().withStatusCode(HttpURLConnection.HTTP_OK)
+                        .withDelay(TimeUnit.MILLISECONDS, 200));
+        var dataElements = new ArrayList<DataElement>();
+        for (var i = 1; i <= 10; i++) {
+            dataElements.add(new DataElement("data" + i, i));
+        }
+
+        boundedClient.appendData(dataElements).join();
+        Thread.sleep(1_000);
+        boundedClient.close();
+
+        var received = new ArrayList<DataElement>();
+        //noinspection resource
+        for (var singleRequest : new MockServerClient("localhost", 8080).retrieveRecordedRequests(
+                request().withPath("/slave/replication/append_data"))) {
+            received.add(objectMapper.readValue(singleRequest.getBodyAsString(), DataElement.class));
+        }
+        assertTrue(received.size() < dataElements.size());
+        assertEquals(dataElements.getLast(), received.getLast());
+    }
+
+    @Test
+    public void appendDataCoalescesQueuedElementsIntoBatchRequests() throws JsonProcessingException {
+        //noinspection resource
+        new MockServerClient("127.0.0.1", 8080).when(request().withMethod("POST"))
+                .respond(response().withStatusCode(HttpURLConnection.HTTP_OK));
+        var dataElements = new ArrayList<DataElement>();
+        for (var i = 1; i <= 100; i++) {
+            dataElements.add(new DataElement("data" + i, i));
+        }
+
+        client.appendData(dataElements).join();
+
+        var received = new ArrayList<DataElement>();
+        //noinspection resource
+        var batchRequests = new MockServerClient("localhost", 8080).retrieveRecordedRequests(
+                request().withPath("/slave/replication/append_batch"));
+        for (var batchRequest : batchRequests) {
+            received.addAll(objectMapper.readValue(batchRequest.getBodyAsString(),
+                    new TypeReference<List<DataElement>>() {}));
+        }
+        //noinspection resource
+        var singleRequests = new MockServerClient("localhost", 8080).retrieveRecordedRequests(
+                request().withPath("/slave/replication/append_data"));
+        for (var singleRequest : singleRequests) {
+            received.add(objectMapper.readValue(singleRequest.getBodyAsString(), DataElement.class));
+        }
+        assertTrue(batchRequests.length > 0);
+        assertTrue(batchRequests.length + singleRequests.length < dataElements.size());
+        received.sort(Comparator.comparingLong(DataElement::sequenceNum));
+        assertEquals(dataElements, received);
+    }
+
+    @Test
+    public void appendDataInBinaryEncodingSendsBatchRequests() {
+        var binaryClient = new SlavesClientImpl(List.of("localhost:8080"), 2, HttpClient.Version.HTTP_1_1,
+                16, 4, 100, ReplicationEncoding.BINARY);
+        //noinspection resource
+        new MockServerClient("127.0.0.1", 8080).when(request().withMethod("POST"))
+                .respond(response().withStatusCode(HttpURLConnection.HTTP_OK));
+        var dataElement = new DataElement("data", 1);
+
+        binaryClient.appendData(List.of(dataElement)).join();
+        binaryClient.close();
+
+        //noinspection resource
+        var requests = new MockServerClient("localhost", 8080).retrieveRecordedRequests(
+                request().withPath("/slave/replication/append_batch")
+                        .withHeader("Content-type", BinaryDataElementCodec.MEDIA_TYPE));
+        assertEquals(1, requests.length);
+        assertEquals(List.of(dataElement), BinaryDataElementCodec.decode(ByteBuffer.wrap(
+                requests[0].getBodyAsRawBytes())));
+    }
+
+    @Test
+    public void appendDataFallsBackToJsonForSlaveRejectingBinaryEncoding() throws JsonProcessingException {
+        var binaryClient = new SlavesClientImpl(List.of("localhost:8080"), 2, HttpClient.Version.HTTP_1_1,
+                16, 4, 100, ReplicationEncoding.BINARY);
+        //noinspection resource
+        new MockServerClient("127.0.0.1", 8080).when(request().withMethod("POST")
+                        .withHeader("Content-type", BinaryDataElementCodec.MEDIA_TYPE))
+                .respond(response().withStatusCode(HttpURLConnection.HTTP_UNSUPPORTED_TYPE));
+        mockServer(8080, HttpURLConnection.HTTP_OK, 0);
+        mockServer(8080, HttpURLConnection.HTTP_OK, 0);
+        var dataElement1 = new DataElement("data1", 1);
+        var dataElement2 = new DataElement("data2", 2);
+
+        binaryClient.appendData(List.of(dataElement1)).join();
+        binaryClient.appendData(List.of(dataElement2)).join();
+        binaryClient.close();
+
+        verifyRequestSent(8080, dataElement1);
+        verifyRequestSent(8080, dataElement2);
+        //noinspection resource
+        new MockServerClient("localhost", 8080).verify(request()
+                        .withHeader("Content-type", BinaryDataElementCodec.MEDIA_TYPE),
+                VerificationTimes.exactly(1));
+    }
 }
@@ -0,0 +1,142 @@
+package com.ds.replicationlog.master.client;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.Master;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.ds.replicationlog.statemachine.codec.ReplicationStreamCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamingSlavesClientTest {
+    private final ByteBufferPool bufferPool = new ByteBufferPool(1024, 1);
+    @Mock
+    private Master master;
+    private StreamingSlavesClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        client = new StreamingSlavesClient(master, 0, 16, 100);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+    }
+
+    @Test
+    public void constructionForNonPositiveBatchSizeFails() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingSlavesClient(master, 0, 0, 100));
+    }
+
+    @Test
+    public void constructionForNonPositiveQueueCapacityFails() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingSlavesClient(master, 0, 16, 0));
+    }
+
+    @Test
+    public void appendDataWithoutConnectedSlavesSucceeds() {
+        assertTrue(client.appendData(List.of(new DataElement("data", 1))).isDone());
+    }
+
+    @Test
+    public void appendDataIsStreamedToEveryConnectedSlaveInOrder() throws Exception {
+        try (var slave1 = connect(); var slave2 = connect()) {
+            var dataElements = new ArrayList<DataElement>();
+            for (var i = 1; i <= 100; i++) {
+                dataElements.add(new DataElement("data" + i, i));
+            }
+
+            client.appendData(dataElements.subList(0, 50)).get(1, TimeUnit.SECONDS);
+            client.appendData(dataElements.subList(50, 100)).get(1, TimeUnit.SECONDS);
+
+            assertEquals(dataElements, receive(slave1, dataElements.size()));
+            assertEquals(dataElements, receive(slave2, dataElements.size()));
+        }
+    }
+
+    @Test
+    public void acknowledgementsFromSlaveArePassedToMaster() throws Exception {
+        try (var slave = connect()) {
+            var out = new DataOutputStream(slave.getOutputStream());
+
+            ReplicationStreamCodec.writeAcknowledgement(out, new Acknowledgement("r1", 1));
+            ReplicationStreamCodec.writeAcknowledgement(out, new Acknowledgement("r1", 5));
+            out.flush();
+
+            verify(master, timeout(1_000)).acknowledgeReception(new Acknowledgement("r1", 1));
+            verify(master, timeout(1_000)).acknowledgeReception(new Acknowledgement("r1", 5));
+        }
+    }
+
+    @Test
+    public void appendDataSucceedsAfterSlaveDisconnects() throws Exception {
+        var slave = connect();
+        slave.close();
+        Thread.sleep(200);
+
+        client.appendData(List.of(new DataElement("data", 1))).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void lastElementDroppedForFullQueueIsStreamedOnceQueueDrains() throws Exception {
+        var boundedClient = new StreamingSlavesClient(master, 0, 1, 1);
+        try (var slave = new Socket("localhost", boundedClient.port())) {
+            Thread.sleep(200);
+            slave.setSoTimeout(5_000);
+            var dataElements = new ArrayList<DataElement>();
+            for (var i = 1; i <= 100; i++) {
+                // Large enough to fill the socket buffers while the slave does not read, so the queue overflows
+                dataElements.add(new DataElement("d".repeat(64 * 1024), i));
+            }
+
+            var replication = boundedClient.appendData(dataElements);
+
+            var in = new DataInputStream(slave.getInputStream());
+            var received = new ArrayList<DataElement>();
+            while (received.isEmpty() || received.getLast().sequenceNum() < dataElements.size()) {
+                received.addAll(ReplicationStreamCodec.readDataElements(in, Integer.MAX_VALUE, bufferPool));
+            }
+            replication.get(1, TimeUnit.SECONDS);
+            assertTrue(received.size() < dataElements.size());
+            assertEquals(dataElements.getLast(), received.getLast());
+        } finally {
+            boundedClient.close();
+        }
+    }
+
+    private Socket connect() throws Exception {
+        var socket = new Socket("localhost", client.port());
+        // the connection is registered by the acceptor thread, appends before that are not streamed to it
+        Thread.sleep(200);
+        return socket;
+    }
+
+    private List<DataElement> receive(Socket slave, int count) throws IOException {
+        var in = new DataInputStream(slave.getInputStream());
+        var received = new ArrayList<DataElement>();
+        while (received.size() < count) {
+            received.addAll(ReplicationStreamCodec.readDataElements(in, Integer.MAX_VALUE, bufferPool));
+        }
+        return received;
+    }
+}
@@ -2,6 +2,7 @@ package com.ds.replicationlog.master.controller;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.concurrent.TimeoutException;
 
@@ -17,6 +18,14 @@ public class ExceptionsHandlerTest {
         assertEquals(HttpStatus.REQUEST_TIMEOUT, response.getStatusCode());
     }
 
+    @Test
+    public void handleResponseStatusExceptionReturnsItsStatus() {
+        var response = handler.handleResponseStatusException(
+                new ResponseStatusException(HttpStatus.BAD_REQUEST, "test"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     public void handleRuntimeExceptionReturnsInternalServerError() {
         var response = handler.handleRuntimeException(new RuntimeException("test"));
@@ -3,6 +3,7 @@ package com.ds.replicationlog.master.controller;
 import com.ds.replicationlog.statemachine.Acknowledgement;
 import com.ds.replicationlog.statemachine.DataElement;
 import com.ds.replicationlog.statemachine.Master;
+import com.ds.replicationlog.statemachine.SeqNumRange;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -12,16 +13,26 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.OutputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(MasterController.class)
@@ -39,13 +50,23 @@ public class MasterControllerTest {
         mockMvc.perform(post("/master/data/append_data").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appendRequest))).andDo(print()).andExpect(status().isOk());
 
-        verify(master).appendData(1, "payload");
+        verify(master).appendData(1, "payload", null);
+    }
+
+    @Test
+    public void appendDataPassesRequestId() throws Exception {
+        var appendRequest = new AppendDataRequest("payload", 1, "id1");
+
+        mockMvc.perform(post("/master/data/append_data").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appendRequest))).andDo(print()).andExpect(status().isOk());
+
+        verify(master).appendData(1, "payload", "id1");
     }
 
     @Test
     public void appendDataIfTimedOutReturnsTimeoutStatusCode() throws Exception {
         var appendRequest = new AppendDataRequest("payload", 1);
-        doThrow(new TimeoutException("test")).when(master).appendData(1, "payload");
+        doThrow(new TimeoutException("test")).when(master).appendData(1, "payload", null);
 
         mockMvc.perform(post("/master/data/append_data").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appendRequest))).andDo(print()).andExpect(status()
@@ -55,7 +76,7 @@ public class MasterControllerTest {
     @Test
     public void appendDataIfInterruptedReturnsInternalErrorStatusCode() throws Exception {
         var appendRequest = new AppendDataRequest("payload", 1);
-        doThrow(new InterruptedException("test")).when(master).appendData(1, "payload");
+        doThrow(new InterruptedException("test")).when(master).appendData(1, "payload", null);
 
         mockMvc.perform(post("/master/data/append_data").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appendRequest))).andDo(print()).andExpect(status()
@@ -63,20 +84,131 @@ public class MasterControllerTest {
     }
 
     @Test
-    public void getDataSucceeds() throws Exception {
-        var result = List.of(new DataElement("data", 1));
-        when(master.getData(0)).thenReturn(result);
+    public void appendDataAsyncRespondsWithSeqNum() throws Exception {
+        var appendRequest = new AppendDataRequest("payload", 1);
+        when(master.appendDataAsync(1, "payload", null)).thenReturn(CompletableFuture.completedFuture(5L));
+
+        var asyncResult = mockMvc.perform(post("/master/data/append_data_async")
+                .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(appendRequest)))
+                .andExpect(request().asyncStarted()).andReturn();
+        var resultJson = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(new AppendDataResponse(5), objectMapper.readValue(resultJson, AppendDataResponse.class));
+    }
+
+    @Test
+    public void appendDataAsyncIfTimedOutReturnsTimeoutStatusCode() throws Exception {
+        var appendRequest = new AppendDataRequest("payload", 1);
+        when(master.appendDataAsync(1, "payload", null)).thenReturn(CompletableFuture.failedFuture(
+                new TimeoutException("test")));
+
+        var asyncResult = mockMvc.perform(post("/master/data/append_data_async")
+                .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(appendRequest)))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isRequestTimeout());
+    }
+
+    @Test
+    public void appendAllRespondsWithAssignedRange() throws Exception {
+        var appendAllRequest = new AppendAllRequest(List.of("data1", "data2", "data3"), 2);
+        when(master.appendAllAsync(2, List.of("data1", "data2", "data3"), null)).thenReturn(
+                CompletableFuture.completedFuture(new SeqNumRange(10, 12)));
+
+        var asyncResult = mockMvc.perform(post("/master/data/append_all").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appendAllRequest))).andExpect(request().asyncStarted())
+                .andReturn();
+        var resultJson = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(new AppendAllResponse(10, 12), objectMapper.readValue(resultJson, AppendAllResponse.class));
+    }
+
+    @Test
+    public void appendAllRetriedWithRequestIdRespondsWithOriginalRange() throws Exception {
+        var appendAllRequest = new AppendAllRequest(List.of("data1", "data2"), 1, "id1");
+        when(master.appendAllAsync(1, List.of("data1", "data2"), "id1")).thenReturn(
+                CompletableFuture.completedFuture(new SeqNumRange(1, 3)));
+
+        var asyncResult = mockMvc.perform(post("/master/data/append_all").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appendAllRequest))).andExpect(request().asyncStarted())
+                .andReturn();
+        var resultJson = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(new AppendAllResponse(1, 3), objectMapper.readValue(resultJson, AppendAllResponse.class));
+    }
+
+    @Test
+    public void appendAllWithoutDataIsRejected() throws Exception {
+        mockMvc.perform(post("/master/data/append_all").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"minAcknowledgments\": 1}")).andDo(print()).andExpect(status().isBadRequest());
 
-        var resultJson= mockMvc.perform(get("/master/data/get_data")).andDo(print()).andExpect(status().isOk())
+        verify(master, never()).appendAllAsync(anyInt(), any(), any());
+    }
+
+    @Test
+    public void getReplicationStatusRespondsWithAcknowledgments() throws Exception {
+        when(master.awaitReplication(5, 2, Duration.ofMillis(500))).thenReturn(
+                CompletableFuture.completedFuture(1));
+
+        var asyncResult = mockMvc.perform(get("/master/data/replication_status/5?minAcknowledgments=2&waitMillis=500"))
+                .andExpect(request().asyncStarted()).andReturn();
+        var resultJson = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(new ReplicationStatus(5, 1), objectMapper.readValue(resultJson, ReplicationStatus.class));
+    }
+
+    @Test
+    public void getReplicationStatusForNegativeWaitMillisIsRejected() throws Exception {
+        mockMvc.perform(get("/master/data/replication_status/5?waitMillis=-1")).andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(master, never()).awaitReplication(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void getReplicationStatusForNegativeMinAcknowledgmentsIsRejected() throws Exception {
+        mockMvc.perform(get("/master/data/replication_status/5?minAcknowledgments=-1")).andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(master, never()).awaitReplication(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void getDataStreamsJsonArray() throws Exception {
+        var result = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        when(master.iterateData(0)).thenReturn(result.iterator());
+
+        var asyncResult = mockMvc.perform(get("/master/data/get_data")).andExpect(request().asyncStarted())
+                .andReturn();
+        var resultJson = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString();
 
         assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
     }
 
+    @Test
+    public void getDataStreamsNdjsonWhenAccepted() throws Exception {
+        var result = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        when(master.iterateData(0)).thenReturn(result.iterator());
+
+        var asyncResult = mockMvc.perform(get("/master/data/get_data").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        var lines = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals(result.get(0), objectMapper.readValue(lines[0], DataElement.class));
+        assertEquals(result.get(1), objectMapper.readValue(lines[1], DataElement.class));
+    }
+
     @Test
     public void getDataFromSeqNumSucceeds() throws Exception {
         var result = List.of(new DataElement("data", 1));
-        when(master.getData(1)).thenReturn(result);
+        when(master.getData(1, Integer.MAX_VALUE, Long.MAX_VALUE)).thenReturn(result);
 
         var resultJson= mockMvc.perform(get("/master/data/get_data/1")).andDo(print()).andExpect(status().isOk())
                 .andReturn().getResponse().getContentAsString();
@@ -84,6 +216,39 @@ public class MasterControllerTest {
         assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
     }
 
+    @Test
+    public void getDataPageFromSeqNumSucceeds() throws Exception {
+        var result = List.of(new DataElement("data", 1));
+        when(master.getData(1, 10, 1_024)).thenReturn(result);
+
+        var resultJson= mockMvc.perform(get("/master/data/get_data/1?limit=10&maxBytes=1024")).andDo(print())
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
+    }
+
+    @Test
+    public void getDataPageForNonPositiveLimitIsRejected() throws Exception {
+        mockMvc.perform(get("/master/data/get_data/1?limit=0")).andDo(print()).andExpect(status().isBadRequest());
+
+        verify(master, never()).getData(anyLong(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void getDataPageForNonPositiveMaxBytesIsRejected() throws Exception {
+        mockMvc.perform(get("/master/data/get_data/1?maxBytes=0")).andDo(print()).andExpect(status().isBadRequest());
+
+        verify(master, never()).getData(anyLong(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void getDataPageForNegativeWaitMillisIsRejected() throws Exception {
+        mockMvc.perform(get("/master/data/get_data/1?waitMillis=-1")).andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(master, never()).awaitData(anyLong(), anyInt(), anyLong(), any());
+    }
+
     @Test
     public void acknowledgeReceptionSucceeds() throws Exception {
         var acknowledgement = new Acknowledgement("r1", 1);
@@ -93,4 +258,30 @@ public class MasterControllerTest {
 
         verify(master).acknowledgeReception(acknowledgement);
     }
+
+    @Test
+    public void getDataPageWithWaitLongPolls() throws Exception {
+        var result = List.of(new DataElement("data", 1));
+        when(master.awaitData(1, 10, 1_024, Duration.ofMillis(500))).thenReturn(result);
+
+        var resultJson= mockMvc.perform(get("/master/data/get_data/1?limit=10&maxBytes=1024&waitMillis=500"))
+                .andDo(print()).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
+    }
+
+    @Test
+    public void getSnapshotStreamsMasterSnapshot() throws Exception {
+        when(master.transferSnapshot(any())).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(new byte[] {1, 2, 3});
+            return 3L;
+        });
+
+        var asyncResult = mockMvc.perform(get("/master/data/snapshot")).andExpect(request().asyncStarted())
+                .andReturn();
+        var content = mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertArrayEquals(new byte[] {1, 2, 3}, content);
+    }
 }
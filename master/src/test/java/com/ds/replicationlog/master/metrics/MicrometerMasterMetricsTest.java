@@ -0,0 +1,26 @@
+package com.ds.replicationlog.master.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MicrometerMasterMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerMasterMetrics metrics = new MicrometerMasterMetrics(registry,
+            List.of("slave1:8080", "slave2:8080"));
+
+    @Test
+    public void acknowledgementsWaitAboveReplicasCountShareOneTag() {
+        metrics.acknowledgementsAwaited(2, 1_000, true);
+        metrics.acknowledgementsAwaited(3, 1_000, true);
+        metrics.acknowledgementsAwaited(1_000, 1_000, true);
+
+        var timers = registry.find("replication.master.acknowledgements.wait").timers();
+        assertEquals(2, timers.size());
+        assertEquals(2, registry.get("replication.master.acknowledgements.wait").tag("minAcknowledgments", ">2")
+                .timer().count());
+    }
+}
@@ -0,0 +1,87 @@
+package com.ds.replicationlog.statemachine.benchmark;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a replication batch of {@code batchSize} elements with {@code payloadSize} chars as JSON, the
+ * way replication requests were sent before, and with {@link BinaryDataElementCodec}. The size of both encodings is
+ * printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CodecBenchmark {
+    private static final long FIRST_SEQ_NUM = 1_000_000;
+
+    @Param({"1", "128"})
+    private int batchSize;
+    @Param({"16", "1024"})
+    private int payloadSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ByteBufferPool bufferPool = new ByteBufferPool(1024 * 1024, 16);
+    private List<DataElement> dataElements;
+    private byte[] json;
+    private ByteBuffer binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        var payload = Payloads.of(payloadSize);
+        dataElements = new ArrayList<>(batchSize);
+        for (var i = 0; i < batchSize; i++) {
+            dataElements.add(new DataElement(payload, FIRST_SEQ_NUM + i));
+        }
+        json = objectMapper.writeValueAsBytes(dataElements);
+        binary = ByteBuffer.allocate(BinaryDataElementCodec.maxEncodedLength(dataElements));
+        BinaryDataElementCodec.encode(dataElements, binary);
+        binary.flip();
+        System.out.printf("%nbatchSize=%d payloadSize=%d: json=%d bytes, binary=%d bytes%n", batchSize, payloadSize,
+                json.length, binary.remaining());
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(dataElements);
+    }
+
+    @Benchmark
+    public int encodeBinary() {
+        var buffer = bufferPool.acquire(BinaryDataElementCodec.maxEncodedLength(dataElements));
+        BinaryDataElementCodec.encode(dataElements, buffer);
+        var length = buffer.position();
+        bufferPool.release(buffer);
+        return length;
+    }
+
+    @Benchmark
+    public List<DataElement> decodeJson() throws IOException {
+        return objectMapper.readValue(json, new TypeReference<>() {});
+    }
+
+    @Benchmark
+    public List<DataElement> decodeBinary() {
+        return BinaryDataElementCodec.decode(binary.duplicate());
+    }
+}
@@ -0,0 +1,94 @@
+package com.ds.replicationlog.statemachine.benchmark;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.Master;
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One operation is a burst of {@code writers} concurrent {@link Master#appendData} calls. The stub slaves client
+ * acknowledges every replicated batch from {@code minAcknowledgments} replicas before returning, so the measured
+ * latency covers group commit and acknowledgement tracking but no network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MasterBenchmark {
+    @Param({"1", "16", "128"})
+    private int writers;
+    @Param({"0", "1", "2"})
+    private int minAcknowledgments;
+    @Param({"16", "1024"})
+    private int payloadSize;
+
+    private String payload;
+    private Master master;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUpExecutor() {
+        payload = Payloads.of(payloadSize);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        master = new Master(new ChunkedArrayRepo(), Duration.ofSeconds(10), dataElements -> {
+            var lastSeqNum = dataElements.getLast().sequenceNum();
+            for (var i = 0; i < minAcknowledgments; i++) {
+                master.acknowledgeReception(new Acknowledgement("replica-" + i, lastSeqNum));
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+        master.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        master.stop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void appendData() throws Exception {
+        if (writers == 1) {
+            master.appendData(minAcknowledgments, payload);
+            return;
+        }
+        var appends = new ArrayList<Future<?>>(writers);
+        for (var i = 0; i < writers; i++) {
+            appends.add(executor.submit(() -> {
+                master.appendData(minAcknowledgments, payload);
+                return null;
+            }));
+        }
+        for (var append : appends) {
+            append.get();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.ds.replicationlog.statemachine.benchmark;
+
+final class Payloads {
+    private Payloads() {
+    }
+
+    static String of(int size) {
+        var payload = new StringBuilder(size);
+        for (var i = 0; i < size; i++) {
+            payload.append((char) ('a' + i % 26));
+        }
+        return payload.toString();
+    }
+}
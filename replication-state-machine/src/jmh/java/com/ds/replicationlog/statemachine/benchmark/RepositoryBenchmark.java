@@ -0,0 +1,108 @@
+package com.ds.replicationlog.statemachine.benchmark;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.DataRepository;
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import com.ds.replicationlog.statemachine.repository.InMemoryRepo;
+import com.ds.replicationlog.statemachine.repository.OffHeapRepo;
+import com.ds.replicationlog.statemachine.repository.SegmentedFileRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends to and reads the tail of a repository holding {@code logSize} elements of {@code payloadSize} chars.
+ * The repository is rebuilt for every iteration, so appends never grow it beyond one iteration worth of elements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RepositoryBenchmark {
+    private static final int READ_SIZE = 100;
+    private static final int FILL_BATCH_SIZE = 1_000;
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public enum RepositoryType {
+        IN_MEMORY, CHUNKED_ARRAY, OFF_HEAP, SEGMENTED_FILE
+    }
+
+    @Param({"IN_MEMORY", "CHUNKED_ARRAY", "OFF_HEAP", "SEGMENTED_FILE"})
+    private RepositoryType repositoryType;
+    @Param({"1000", "100000"})
+    private int logSize;
+    @Param({"16", "1024"})
+    private int payloadSize;
+
+    private String payload;
+    private Path directory;
+    private DataRepository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        payload = Payloads.of(payloadSize);
+        repository = switch (repositoryType) {
+            case IN_MEMORY -> new InMemoryRepo();
+            case CHUNKED_ARRAY -> new ChunkedArrayRepo();
+            case OFF_HEAP -> new OffHeapRepo();
+            case SEGMENTED_FILE -> {
+                directory = Files.createTempDirectory("repository-benchmark");
+                yield new SegmentedFileRepo(directory, SEGMENT_SIZE, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                        Duration.ZERO);
+            }
+        };
+        var batch = Collections.nCopies(FILL_BATCH_SIZE, payload);
+        for (var filled = 0; filled < logSize; filled += FILL_BATCH_SIZE) {
+            repository.appendAll(batch.subList(0, Math.min(FILL_BATCH_SIZE, logSize - filled)));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        if (directory != null) {
+            try (var files = Files.walk(directory)) {
+                for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+            directory = null;
+        }
+    }
+
+    @Benchmark
+    public long appendData() {
+        return repository.appendData(payload);
+    }
+
+    @Benchmark
+    public List<DataElement> getDataElementsTail() {
+        return repository.getDataElements(repository.getLastSeqNum() - READ_SIZE + 1);
+    }
+
+    @Benchmark
+    public List<DataElement> getDataElementsPage() {
+        return repository.getDataElements(logSize / 2, READ_SIZE);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ds.replicationlog.statemachine.benchmark;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.MasterClient;
+import com.ds.replicationlog.statemachine.Slave;
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes {@value #ELEMENTS_PER_OPERATION} elements into a started {@link Slave} in batches of
+ * {@code replicationBatchSize} and waits until the apply loop has written all of them, so throughput is reported
+ * per applied element. The stub master client serves an empty backlog and drops acknowledgements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SlaveBenchmark {
+    private static final int ELEMENTS_PER_OPERATION = 1_024;
+
+    @Param({"1", "128"})
+    private int replicationBatchSize;
+    @Param({"16", "1024"})
+    private int payloadSize;
+
+    private String payload;
+    private ChunkedArrayRepo repository;
+    private Slave slave;
+    private long nextSeqNum;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        payload = Payloads.of(payloadSize);
+        repository = new ChunkedArrayRepo();
+        slave = new Slave(repository, new MasterClient() {
+            @Override
+            public void acknowledgeReception(Acknowledgement acknowledgement) {
+            }
+
+            @Override
+            public List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes) {
+                return List.of();
+            }
+
+            @Override
+            public List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes, Duration wait) {
+                return List.of();
+            }
+
+            @Override
+            public InputStream getSnapshot() {
+                return InputStream.nullInputStream();
+            }
+        }, ELEMENTS_PER_OPERATION, "benchmark");
+        slave.start();
+        nextSeqNum = 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        slave.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS_PER_OPERATION)
+    public void applyElements() {
+        var lastSeqNum = nextSeqNum + ELEMENTS_PER_OPERATION - 1;
+        var batch = new ArrayList<DataElement>(replicationBatchSize);
+        for (var seqNum = nextSeqNum; seqNum <= lastSeqNum; seqNum++) {
+            batch.add(new DataElement(payload, seqNum));
+            if (batch.size() == replicationBatchSize || seqNum == lastSeqNum) {
+                slave.appendData(List.copyOf(batch));
+                batch.clear();
+            }
+        }
+        nextSeqNum = lastSeqNum + 1;
+        while (repository.getLastSeqNum() < lastSeqNum) {
+            Thread.onSpinWait();
+        }
+    }
+}
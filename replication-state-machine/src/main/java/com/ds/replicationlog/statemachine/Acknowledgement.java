@@ -2,6 +2,9 @@ package com.ds.replicationlog.statemachine;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Cumulative acknowledgement: the replica has applied every element up to and including {@code sequenceNum}.
+ */
 public record Acknowledgement(String replicaId, long sequenceNum) {
 
     public Acknowledgement {
@@ -1,8 +1,24 @@
 package com.ds.replicationlog.statemachine;
 
+import java.util.Iterator;
 import java.util.List;
 
 public interface DataRepository {
     long appendData(String data);
-    List<DataElement> getDataElements(long fromSeqNum);
+    long appendAll(List<String> data);
+    List<DataElement> getDataElements(long fromSeqNum, int limit);
+    long getLastSeqNum();
+
+    default List<DataElement> getDataElements(long fromSeqNum) {
+        return getDataElements(fromSeqNum, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a cursor over the elements from {@code fromSeqNum} up to the last sequence number at the time of the
+     * call, which reads the repository lazily, so iterating a large log does not hold it in memory. Elements
+     * truncated while iterating are skipped.
+     */
+    default Iterator<DataElement> iterate(long fromSeqNum) {
+        return new PagedCursor(this, fromSeqNum, getLastSeqNum());
+    }
 }
@@ -1,100 +1,618 @@
 package com.ds.replicationlog.statemachine;
 
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Duration;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.Objects.requireNonNull;
 
 public class Master {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private final Map<Long, ReplicationState> acknowledges = new ConcurrentHashMap<>();
+    private static final Duration DEFAULT_GROUP_COMMIT_WINDOW = Duration.ZERO;
+    private static final int DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE = 256;
+    private static final int PENDING_ACKNOWLEDGEMENTS_CAPACITY = 1 << 16;
+    private static final int DEFAULT_REQUEST_ID_CACHE_SIZE = 100_000;
+    private static final Duration DEFAULT_REQUEST_ID_RETENTION = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_REPLICA_EXPIRY = Duration.ofMinutes(5);
+    private final PendingAcknowledgements pendingAcknowledgements = new PendingAcknowledgements(
+            PENDING_ACKNOWLEDGEMENTS_CAPACITY);
+    private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<>();
+    private final AtomicReference<CompletableFuture<Void>> nextCommit = new AtomicReference<>(
+            new CompletableFuture<>());
+    private final AtomicReference<CompletableFuture<Void>> nextAcknowledgement = new AtomicReference<>(
+            new CompletableFuture<>());
+    private final Thread groupCommitThread;
     private final DataRepository repository;
     private final Duration minAcknowledgmentsWaitTime;
     private final SlavesClient slavesClient;
+    private final long groupCommitWindowNanos;
+    private final int groupCommitMaxBatchSize;
+    private final MasterMetrics metrics;
+    private final RequestIdCache requestIds;
+    private final long replicaExpiryNanos;
+
+    private volatile long committedSeqNum;
+    private long nextReplicasExpiryNanos;
 
     public Master(DataRepository repository, Duration minAcknowledgmentsWaitTime, SlavesClient slavesClient) {
+        this(repository, minAcknowledgmentsWaitTime, slavesClient, DEFAULT_GROUP_COMMIT_WINDOW,
+                DEFAULT_GROUP_COMMIT_MAX_BATCH_SIZE);
+    }
+
+    public Master(DataRepository repository, Duration minAcknowledgmentsWaitTime, SlavesClient slavesClient,
+                  Duration groupCommitWindow, int groupCommitMaxBatchSize) {
+        this(repository, minAcknowledgmentsWaitTime, slavesClient, groupCommitWindow, groupCommitMaxBatchSize,
+                MasterMetrics.NONE);
+    }
+
+    public Master(DataRepository repository, Duration minAcknowledgmentsWaitTime, SlavesClient slavesClient,
+                  Duration groupCommitWindow, int groupCommitMaxBatchSize, MasterMetrics metrics) {
+        this(repository, minAcknowledgmentsWaitTime, slavesClient, groupCommitWindow, groupCommitMaxBatchSize, metrics,
+                DEFAULT_REQUEST_ID_CACHE_SIZE, DEFAULT_REQUEST_ID_RETENTION);
+    }
+
+    /**
+     * Appends carrying a request id are deduplicated against the last {@code requestIdCacheSize} ids seen within
+     * {@code requestIdRetention}.
+     */
+    public Master(DataRepository repository, Duration minAcknowledgmentsWaitTime, SlavesClient slavesClient,
+                  Duration groupCommitWindow, int groupCommitMaxBatchSize, MasterMetrics metrics,
+                  int requestIdCacheSize, Duration requestIdRetention) {
+        this(repository, minAcknowledgmentsWaitTime, slavesClient, groupCommitWindow, groupCommitMaxBatchSize, metrics,
+                requestIdCacheSize, requestIdRetention, DEFAULT_REPLICA_EXPIRY);
+    }
+
+    /**
+     * A replica which lags behind the committed elements and has not acknowledged anything for
+     * {@code replicaExpiry} is forgotten, so replicas which are gone do not pile up. The expiry has to exceed
+     * {@code minAcknowledgmentsWaitTime}, so a forgotten replica which comes back cannot be counted twice by an append
+     * still waiting for acknowledgements.
+     */
+    public Master(DataRepository repository, Duration minAcknowledgmentsWaitTime, SlavesClient slavesClient,
+                  Duration groupCommitWindow, int groupCommitMaxBatchSize, MasterMetrics metrics,
+                  int requestIdCacheSize, Duration requestIdRetention, Duration replicaExpiry) {
         this.repository = requireNonNull(repository);
         if (!minAcknowledgmentsWaitTime.isPositive()) {
             throw new IllegalArgumentException("Acknowledgments wait time must be positive");
         }
         this.minAcknowledgmentsWaitTime = requireNonNull(minAcknowledgmentsWaitTime);
         this.slavesClient = requireNonNull(slavesClient);
+        if (groupCommitWindow.isNegative()) {
+            throw new IllegalArgumentException("Group commit window cannot be negative");
+        }
+        this.groupCommitWindowNanos = groupCommitWindow.toNanos();
+        if (groupCommitMaxBatchSize < 1) {
+            throw new IllegalArgumentException("Group commit max batch size must be positive");
+        }
+        this.groupCommitMaxBatchSize = groupCommitMaxBatchSize;
+        this.metrics = requireNonNull(metrics);
+        this.requestIds = new RequestIdCache(requestIdCacheSize, requestIdRetention);
+        if (replicaExpiry.compareTo(minAcknowledgmentsWaitTime) <= 0) {
+            throw new IllegalArgumentException("Replica expiry must exceed acknowledgments wait time");
+        }
+        this.replicaExpiryNanos = replicaExpiry.toNanos();
+        this.nextReplicasExpiryNanos = System.nanoTime() + replicaExpiryNanos;
+        this.committedSeqNum = repository.getLastSeqNum();
+
+        this.groupCommitThread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    commit(collectBatch());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
     }
 
+    /**
+     * Returns the committed elements from {@code fromSeqNum} on. Reads of master stop at the last committed element,
+     * as an element appended to the repository does not await acknowledgements until its batch is committed, and a
+     * replica which acknowledged it earlier would not be counted.
+     */
     public List<DataElement> getData(long fromSeqNum) {
-        return repository.getDataElements(fromSeqNum);
+        var lastSeqNum = committedSeqNum;
+        return committed(repository.getDataElements(fromSeqNum), lastSeqNum);
+    }
+
+    /**
+     * Iterates the committed elements from {@code fromSeqNum} up to the current last one lazily, see
+     * {@link DataRepository#iterate}.
+     */
+    public Iterator<DataElement> iterateData(long fromSeqNum) {
+        var lastSeqNum = committedSeqNum;
+        return new CommittedIterator(repository.iterate(fromSeqNum), lastSeqNum);
+    }
+
+    /**
+     * Returns at most {@code limit} elements starting at {@code fromSeqNum}, cut short once their UTF-8 payload
+     * exceeds {@code maxBytes}. The first element is always returned, so a single oversized element cannot stall
+     * a reader which pages through the log.
+     */
+    public List<DataElement> getData(long fromSeqNum, int limit, long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Max bytes must be positive");
+        }
+        var lastSeqNum = committedSeqNum;
+        var dataElements = committed(repository.getDataElements(fromSeqNum, limit), lastSeqNum);
+        var bytes = 0L;
+        for (var i = 0; i < dataElements.size(); i++) {
+            bytes += BinaryDataElementCodec.utf8Length(dataElements.get(i).data());
+            if (bytes > maxBytes && i > 0) {
+                return dataElements.subList(0, i);
+            }
+        }
+        return dataElements;
+    }
+
+    private static List<DataElement> committed(List<DataElement> dataElements, long lastSeqNum) {
+        var size = dataElements.size();
+        while (size > 0 && dataElements.get(size - 1).sequenceNum() > lastSeqNum) {
+            size--;
+        }
+        return size == dataElements.size() ? dataElements : dataElements.subList(0, size);
+    }
+
+    /**
+     * Same as {@link #getData(long, int, long)}, but when nothing from {@code fromSeqNum} on has been committed yet,
+     * waits up to {@code wait} for it and returns an empty list if it is still missing by then.
+     */
+    public List<DataElement> awaitData(long fromSeqNum, int limit, long maxBytes, Duration wait)
+            throws InterruptedException {
+        if (wait.isNegative()) {
+            throw new IllegalArgumentException("Wait cannot be negative");
+        }
+        var deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            // Taken before the check, so a commit in between completes the future instead of being missed
+            var commit = nextCommit.get();
+            var lastSeqNum = committedSeqNum;
+            if (lastSeqNum >= fromSeqNum) {
+                return getData(fromSeqNum, (int) Math.min(limit, lastSeqNum - fromSeqNum + 1), maxBytes);
+            }
+            var remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return List.of();
+            }
+            try {
+                commit.get(remainingNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return List.of();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Commit signal cannot fail", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot of the repository to {@code target}, nothing when the repository does not keep one, and
+     * returns the last sequence number it holds.
+     */
+    public long transferSnapshot(OutputStream target) throws IOException {
+        requireNonNull(target);
+        return repository instanceof SnapshotRepository snapshotRepository
+                ? snapshotRepository.transferSnapshot(target) : 0;
     }
 
     public void appendData(int minAcknowledgments, String data) throws InterruptedException, TimeoutException {
+        appendData(minAcknowledgments, data, null);
+    }
+
+    /**
+     * Same as {@link #appendData(int, String)}, but a non-null {@code requestId} makes the append idempotent: a retry
+     * with an id seen before is not appended again and only waits for the original element to be committed and
+     * acknowledged by {@code minAcknowledgments} replicas, so a client may retry an append which has timed out.
+     */
+    public void appendData(int minAcknowledgments, String data, String requestId)
+            throws InterruptedException, TimeoutException {
         if (minAcknowledgments < 0) {
             throw new IllegalArgumentException("Min acknowledgments must be positive");
         }
-        requireNonNull(data);
-        var seqNum = repository.appendData(data);
-        replicateAndWaitAcknowledgements(seqNum, minAcknowledgments, new DataElement(data, seqNum));
+        var original = requestId == null ? null : requestIds.register(requestId);
+        if (original != null) {
+            waitCompleted(awaitRetried(minAcknowledgments, original));
+            return;
+        }
+        // One deadline for the commit and the acknowledgements, so the append never outlasts the wait time
+        var deadlineNanos = System.nanoTime() + minAcknowledgmentsWaitTime.toNanos();
+        var pendingAppend = new PendingAppend(List.of(data), minAcknowledgments, Thread.currentThread(),
+                new CompletableFuture<>(), requestId);
+        pendingAppends.add(pendingAppend);
+        var seqNum = waitCommit(pendingAppend, deadlineNanos);
+        if (minAcknowledgments > 0) {
+            waitAcknowledgments(minAcknowledgments, seqNum, deadlineNanos);
+        }
     }
 
-    private void replicateAndWaitAcknowledgements(long seqNum, int minAcknowledgments, DataElement dataElement)
-            throws InterruptedException, TimeoutException {
-        var replicationState = new ReplicationState(minAcknowledgments, minAcknowledgmentsWaitTime);
-        acknowledges.put(seqNum, replicationState);
+    /**
+     * Non-blocking counterpart of {@link #appendData}: the returned future completes with the sequence number of the
+     * element once it is committed and acknowledged by {@code minAcknowledgments} replicas, so no thread is held while
+     * waiting. With zero acknowledgements it completes right after the commit, and the replication of the element can
+     * be followed with {@link #awaitReplication}. Fails with {@link TimeoutException} under the same limits as
+     * {@link #appendData}.
+     */
+    public CompletableFuture<Long> appendDataAsync(int minAcknowledgments, String data) {
+        return appendDataAsync(minAcknowledgments, data, null);
+    }
+
+    /**
+     * Idempotent {@link #appendDataAsync(int, String)} for a non-null {@code requestId}, see
+     * {@link #appendData(int, String, String)}.
+     */
+    public CompletableFuture<Long> appendDataAsync(int minAcknowledgments, String data, String requestId) {
+        return appendAllAsync(minAcknowledgments, List.of(data), requestId).thenApply(SeqNumRange::lastSeqNum);
+    }
+
+    /**
+     * Same as {@link #appendDataAsync}, but for a batch of elements which is assigned a contiguous range of sequence
+     * numbers, replicated within one update and acknowledged once replicas acknowledge its last element. The future
+     * completes with the range.
+     */
+    public CompletableFuture<SeqNumRange> appendAllAsync(int minAcknowledgments, List<String> data) {
+        return appendAllAsync(minAcknowledgments, data, null);
+    }
+
+    /**
+     * Idempotent {@link #appendAllAsync(int, List)} for a non-null {@code requestId}, see
+     * {@link #appendData(int, String, String)}; a retried batch completes with the range of the original one, whatever
+     * its own size.
+     */
+    public CompletableFuture<SeqNumRange> appendAllAsync(int minAcknowledgments, List<String> data,
+                                                         String requestId) {
+        if (minAcknowledgments < 0) {
+            throw new IllegalArgumentException("Min acknowledgments must be positive");
+        }
+        var batch = List.copyOf(data);
+        if (batch.isEmpty()) {
+            throw new IllegalArgumentException("Data batch cannot be empty");
+        }
+        var original = requestId == null ? null : requestIds.register(requestId);
+        if (original != null) {
+            return awaitRetried(minAcknowledgments, original);
+        }
+        var deadlineNanos = System.nanoTime() + minAcknowledgmentsWaitTime.toNanos();
+        var acknowledged = minAcknowledgments > 0 ? new CompletableFuture<Void>() : null;
+        var pendingAppend = new PendingAppend(batch, minAcknowledgments, acknowledged, new CompletableFuture<>(),
+                requestId);
+        pendingAppends.add(pendingAppend);
+        // A timed out commit fails the future, so the group commit thread releases the acknowledgements slot itself
+        var committed = pendingAppend.seqNum().orTimeout(minAcknowledgmentsWaitTime.toNanos(), TimeUnit.NANOSECONDS);
+        var acknowledgedSeqNum = minAcknowledgments == 0 ? committed : committed.thenCompose(
+                seqNum -> awaitAcknowledgments(minAcknowledgments, seqNum, acknowledged, deadlineNanos));
+        return acknowledgedSeqNum.thenApply(
+                lastSeqNum -> new SeqNumRange(lastSeqNum - batch.size() + 1, lastSeqNum));
+    }
+
+    private CompletableFuture<Long> awaitAcknowledgments(int minAcknowledgments, long seqNum,
+                                                         CompletableFuture<Void> acknowledged, long deadlineNanos) {
+        if (!pendingAcknowledgements.isRegistered(seqNum)) {
+            return awaitReplicated(seqNum, minAcknowledgments, deadlineNanos);
+        }
+        var startNanos = System.nanoTime();
+        return acknowledged.orTimeout(Math.max(deadlineNanos - startNanos, 0), TimeUnit.NANOSECONDS)
+                .handle((result, e) -> {
+                    pendingAcknowledgements.release(seqNum);
+                    metrics.acknowledgementsAwaited(minAcknowledgments, System.nanoTime() - startNanos, e == null);
+                    if (e != null) {
+                        throw new CompletionException(new TimeoutException(
+                                "Waiting for acknowledgments has exceeded the timeout"));
+                    }
+                    return seqNum;
+                });
+    }
+
+    /**
+     * Waits for a retried append on the commit of the original one and then on its acknowledgements, counted from the
+     * replicas watermarks as the original append may have released its slot already.
+     */
+    private CompletableFuture<SeqNumRange> awaitRetried(int minAcknowledgments,
+                                                        CompletableFuture<SeqNumRange> original) {
+        var deadlineNanos = System.nanoTime() + minAcknowledgmentsWaitTime.toNanos();
+        // A copy, so the timeout does not fail the future shared with other retries
+        var retried = original.copy().orTimeout(minAcknowledgmentsWaitTime.toNanos(), TimeUnit.NANOSECONDS);
+        if (minAcknowledgments == 0) {
+            return retried;
+        }
+        return retried.thenCompose(seqNums -> awaitReplicated(seqNums.lastSeqNum(), minAcknowledgments, deadlineNanos)
+                .thenApply(ignored -> seqNums));
+    }
+
+    /**
+     * Waits for {@code minAcknowledgments} replicas watermarks to reach {@code seqNum}, for appends which do not hold
+     * a slot of the pending acknowledgements.
+     */
+    private CompletableFuture<Long> awaitReplicated(long seqNum, int minAcknowledgments, long deadlineNanos) {
+        return awaitReplication(seqNum, minAcknowledgments, deadlineNanos).thenApply(acknowledgments -> {
+            if (acknowledgments < minAcknowledgments) {
+                throw new CompletionException(new TimeoutException(
+                        "Waiting for acknowledgments has exceeded the timeout"));
+            }
+            return seqNum;
+        });
+    }
+
+    private static void waitCompleted(CompletableFuture<?> future) throws InterruptedException, TimeoutException {
         try {
-            updateReplicas(dataElement);
-            if (minAcknowledgments > 0) {
-                replicationState.waitAcknowledgments();
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException timeoutException) {
+                throw timeoutException;
             }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to append data", e.getCause());
+        }
+    }
+
+    /**
+     * Completes with the number of replicas which have acknowledged {@code seqNum} as soon as it reaches
+     * {@code minAcknowledgments}, or with the number reached when {@code wait} elapses.
+     */
+    public CompletableFuture<Integer> awaitReplication(long seqNum, int minAcknowledgments, Duration wait) {
+        if (wait.isNegative()) {
+            throw new IllegalArgumentException("Wait cannot be negative");
+        }
+        return awaitReplication(seqNum, minAcknowledgments, System.nanoTime() + wait.toNanos());
+    }
+
+    private CompletableFuture<Integer> awaitReplication(long seqNum, int minAcknowledgments, long deadlineNanos) {
+        // Taken before counting, so an acknowledgement in between completes the future instead of being missed
+        var acknowledgement = nextAcknowledgement.get();
+        var acknowledgments = 0;
+        for (var replica : replicas.values()) {
+            if (replica.watermark() >= seqNum) {
+                acknowledgments++;
+            }
+        }
+        var remainingNanos = deadlineNanos - System.nanoTime();
+        if (acknowledgments >= minAcknowledgments || remainingNanos <= 0) {
+            return CompletableFuture.completedFuture(acknowledgments);
+        }
+        // A copy, so the timeout does not complete the future shared with other waiters
+        return acknowledgement.copy().completeOnTimeout(null, remainingNanos, TimeUnit.NANOSECONDS)
+                .thenCompose(ignored -> awaitReplication(seqNum, minAcknowledgments, deadlineNanos));
+    }
+
+    private void waitAcknowledgments(int minAcknowledgments, long seqNum, long deadlineNanos)
+            throws InterruptedException, TimeoutException {
+        if (!pendingAcknowledgements.isRegistered(seqNum)) {
+            waitCompleted(awaitReplicated(seqNum, minAcknowledgments, deadlineNanos));
+            return;
+        }
+        var startNanos = System.nanoTime();
+        var successful = false;
+        try {
+            successful = pendingAcknowledgements.await(seqNum, Math.max(deadlineNanos - startNanos, 0));
         } finally {
-            acknowledges.remove(seqNum);
+            metrics.acknowledgementsAwaited(minAcknowledgments, System.nanoTime() - startNanos, successful);
+        }
+        if (!successful) {
+            throw new TimeoutException("Waiting for acknowledgments has exceeded the timeout");
+        }
+    }
+
+    private long waitCommit(PendingAppend pendingAppend, long deadlineNanos)
+            throws InterruptedException, TimeoutException {
+        try {
+            return pendingAppend.seqNum().get(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (!pendingAppend.seqNum().cancel(false) && !pendingAppend.seqNum().isCompletedExceptionally()) {
+                pendingAcknowledgements.release(pendingAppend.seqNum().join());
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to append data", e.getCause());
+        }
+    }
+
+    private List<PendingAppend> collectBatch() throws InterruptedException {
+        var batch = new ArrayList<PendingAppend>();
+        batch.add(pendingAppends.take());
+        var elements = batch.getFirst().data().size();
+        var deadline = System.nanoTime() + groupCommitWindowNanos;
+        while (elements < groupCommitMaxBatchSize) {
+            var remainingNanos = deadline - System.nanoTime();
+            var pendingAppend = remainingNanos > 0 ? pendingAppends.poll(remainingNanos, TimeUnit.NANOSECONDS)
+                    : pendingAppends.poll();
+            if (pendingAppend == null) {
+                break;
+            }
+            batch.add(pendingAppend);
+            elements += pendingAppend.data().size();
         }
+        return batch;
     }
 
-    private void updateReplicas(DataElement dataElement) {
+    private void commit(List<PendingAppend> batch) {
+        var data = batch.size() == 1 ? batch.getFirst().data()
+                : batch.stream().flatMap(pendingAppend -> pendingAppend.data().stream()).toList();
+        long lastSeqNum;
         try {
-            slavesClient.appendData(dataElement);
+            var startNanos = System.nanoTime();
+            lastSeqNum = repository.appendAll(data);
+            metrics.repositoryAppended(data.size(), System.nanoTime() - startNanos);
         } catch (RuntimeException e) {
+            logger.warn("Failed to append data batch", e);
+            for (var pendingAppend : batch) {
+                pendingAppend.seqNum().completeExceptionally(e);
+                if (pendingAppend.requestId() != null) {
+                    requestIds.failed(pendingAppend.requestId(), e);
+                }
+            }
+            return;
+        }
+        var seqNum = lastSeqNum - data.size();
+        var dataElements = new ArrayList<DataElement>(data.size());
+        var lastSeqNums = new long[batch.size()];
+        for (var i = 0; i < batch.size(); i++) {
+            var pendingAppend = batch.get(i);
+            for (var d : pendingAppend.data()) {
+                dataElements.add(new DataElement(d, ++seqNum));
+            }
+            lastSeqNums[i] = seqNum;
+            // Acknowledgements are cumulative, so the last element of a range stands for all of it. An append whose
+            // slot is still taken by a waiter capacity elements behind is not registered and counts replicas watermarks
+            if (pendingAppend.minAcknowledgments() > 0) {
+                pendingAcknowledgements.register(seqNum, pendingAppend.minAcknowledgments(), pendingAppend.waiter());
+            }
+        }
+        // Published only once the batch awaits acknowledgements, so a pulling replica cannot acknowledge it earlier
+        committedSeqNum = lastSeqNum;
+        nextCommit.getAndSet(new CompletableFuture<>()).complete(null);
+        updateReplicas(dataElements);
+        expireReplicas();
+        for (var i = 0; i < batch.size(); i++) {
+            if (!batch.get(i).seqNum().complete(lastSeqNums[i])) {
+                pendingAcknowledgements.release(lastSeqNums[i]);
+            }
+            // Recorded even for an append whose caller has given up, as its retry must not append it again
+            if (batch.get(i).requestId() != null) {
+                requestIds.committed(batch.get(i).requestId(),
+                        new SeqNumRange(lastSeqNums[i] - batch.get(i).data().size() + 1, lastSeqNums[i]));
+            }
+        }
+    }
+
+    private void updateReplicas(List<DataElement> dataElements) {
+        var startNanos = System.nanoTime();
+        try {
+            slavesClient.appendData(dataElements).whenComplete((result, e) -> {
+                metrics.replicasUpdated(dataElements.size(), System.nanoTime() - startNanos, e == null);
+                if (e != null) {
+                    logger.warn("Failed to send updates to replicas", e);
+                }
+            });
+        } catch (RuntimeException e) {
+            metrics.replicasUpdated(dataElements.size(), System.nanoTime() - startNanos, false);
             logger.warn("Failed to send updates to replicas", e);
         }
     }
 
+    /**
+     * Forgets the replicas which lag behind the committed elements and have not acknowledged anything within the
+     * replica expiry. Checked once per expiry, on the group commit thread.
+     */
+    private void expireReplicas() {
+        var now = System.nanoTime();
+        if (now - nextReplicasExpiryNanos < 0) {
+            return;
+        }
+        nextReplicasExpiryNanos = now + replicaExpiryNanos;
+        var lastSeqNum = committedSeqNum;
+        for (var replicaId : replicas.keySet()) {
+            var expired = new boolean[1];
+            replicas.computeIfPresent(replicaId, (id, replica) -> {
+                expired[0] = replica.watermark() < lastSeqNum && now - replica.acknowledgedNanos() > replicaExpiryNanos;
+                return expired[0] ? null : replica;
+            });
+            if (expired[0]) {
+                logger.info("Replica {} has not acknowledged anything for {} s, forgetting it", replicaId,
+                        TimeUnit.NANOSECONDS.toSeconds(replicaExpiryNanos));
+                metrics.replicaExpired(replicaId);
+            }
+        }
+    }
+
+    /**
+     * Moves the watermark of the replica to the acknowledged sequence number. Acknowledgements of a replica are sent
+     * in order, so a lower one means it has restarted with less data and its watermark goes down; pending appends
+     * count it again only above the highest sequence number it has ever acknowledged.
+     */
     public void acknowledgeReception(Acknowledgement acknowledgement) {
         requireNonNull(acknowledgement);
-        acknowledges.computeIfPresent(acknowledgement.sequenceNum(), (k, rs) -> {
-            rs.markAcknowledgement(acknowledgement.replicaId());
-            return rs;
+        var now = System.nanoTime();
+        var previous = new Replica[1];
+        replicas.compute(acknowledgement.replicaId(), (replicaId, replica) -> {
+            previous[0] = replica;
+            var countedSeqNum = replica == null ? 0 : replica.countedSeqNum();
+            return new Replica(acknowledgement.sequenceNum(), Math.max(countedSeqNum, acknowledgement.sequenceNum()),
+                    now);
         });
+        var previousCountedSeqNum = previous[0] == null ? 0 : previous[0].countedSeqNum();
+        if (acknowledgement.sequenceNum() > previousCountedSeqNum) {
+            pendingAcknowledgements.acknowledge(previousCountedSeqNum, acknowledgement.sequenceNum());
+        }
+        if (previous[0] == null || previous[0].watermark() != acknowledgement.sequenceNum()) {
+            metrics.replicaAcknowledged(acknowledgement.replicaId(), acknowledgement.sequenceNum());
+            nextAcknowledgement.getAndSet(new CompletableFuture<>()).complete(null);
+        }
+    }
+
+    public void start() {
+        groupCommitThread.start();
+    }
+
+    public void stop() {
+        groupCommitThread.interrupt();
     }
 
-    private static class ReplicationState {
-        private final CountDownLatch latchLatch;
-        private final Set<String> replicasIds = new HashSet<>();
-        private final Duration minAcknowledgmentsWaitTime;
+    /**
+     * {@code watermark} is the last sequence number acknowledged by the replica, {@code countedSeqNum} the highest one
+     * counted for pending appends.
+     */
+    private record Replica(long watermark, long countedSeqNum, long acknowledgedNanos) {
+    }
 
-        private ReplicationState(int minAcknowledgments, Duration minAcknowledgmentsWaitTime) {
-            this.latchLatch = new CountDownLatch(minAcknowledgments);
-            this.minAcknowledgmentsWaitTime = minAcknowledgmentsWaitTime;
+    private static final class CommittedIterator implements Iterator<DataElement> {
+        private final Iterator<DataElement> iterator;
+        private final long lastSeqNum;
+        private DataElement next;
+
+        private CommittedIterator(Iterator<DataElement> iterator, long lastSeqNum) {
+            this.iterator = iterator;
+            this.lastSeqNum = lastSeqNum;
         }
 
-        private void markAcknowledgement(String replicaId) {
-            if (replicasIds.add(replicaId)) {
-                latchLatch.countDown();
+        @Override
+        public boolean hasNext() {
+            if (next == null && iterator.hasNext()) {
+                var dataElement = iterator.next();
+                next = dataElement.sequenceNum() <= lastSeqNum ? dataElement : null;
             }
+            return next != null;
         }
 
-        private void waitAcknowledgments() throws InterruptedException, TimeoutException {
-            if (!latchLatch.await(minAcknowledgmentsWaitTime.toMillis(), TimeUnit.MILLISECONDS)) {
-                throw new TimeoutException("Waiting for acknowledgments has exceeded the timeout");
+        @Override
+        public DataElement next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            var dataElement = next;
+            next = null;
+            return dataElement;
         }
     }
+
+    /**
+     * {@code seqNum} completes with the last sequence number of {@code data}. {@code waiter} is the appending thread,
+     * or the future completed on acknowledgement for an asynchronous append. {@code requestId} is null unless the
+     * append is idempotent.
+     */
+    private record PendingAppend(List<String> data, int minAcknowledgments, Object waiter,
+                                 CompletableFuture<Long> seqNum, String requestId) {
+    }
 }
@@ -1,8 +1,21 @@
 package com.ds.replicationlog.statemachine;
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 
 public interface MasterClient {
     void acknowledgeReception(Acknowledgement acknowledgement);
-    List<DataElement> getDataElements(long fromSeqNum);
+    List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes);
+
+    /**
+     * Long polls master: the request is held for up to {@code wait} while nothing from {@code fromSeqNum} on has
+     * been committed, and an empty list is returned if nothing has been committed by then.
+     */
+    List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes, Duration wait);
+
+    /**
+     * Opens the master snapshot as written by {@link SnapshotRepository#transferSnapshot}, the caller has to close it.
+     */
+    InputStream getSnapshot();
 }
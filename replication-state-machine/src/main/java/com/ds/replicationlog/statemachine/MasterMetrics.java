@@ -0,0 +1,24 @@
+package com.ds.replicationlog.statemachine;
+
+/**
+ * Receives measurements of the master replication stages. Methods are called on the commit and acknowledgement
+ * paths, so implementations must be cheap and thread safe.
+ */
+public interface MasterMetrics {
+    MasterMetrics NONE = new MasterMetrics() {};
+
+    default void repositoryAppended(int batchSize, long durationNanos) {
+    }
+
+    default void replicasUpdated(int batchSize, long durationNanos, boolean successful) {
+    }
+
+    default void acknowledgementsAwaited(int minAcknowledgments, long durationNanos, boolean successful) {
+    }
+
+    default void replicaAcknowledged(String replicaId, long sequenceNum) {
+    }
+
+    default void replicaExpired(String replicaId) {
+    }
+}
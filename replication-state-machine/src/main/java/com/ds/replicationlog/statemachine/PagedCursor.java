@@ -0,0 +1,53 @@
+package com.ds.replicationlog.statemachine;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates a repository in pages of {@link #PAGE_SIZE} elements.
+ */
+final class PagedCursor implements Iterator<DataElement> {
+    static final int PAGE_SIZE = 1_024;
+
+    private final DataRepository repository;
+    private final long toSeqNum;
+    private long nextSeqNum;
+    private List<DataElement> page = List.of();
+    private int index;
+
+    PagedCursor(DataRepository repository, long fromSeqNum, long toSeqNum) {
+        this.repository = repository;
+        this.nextSeqNum = fromSeqNum;
+        this.toSeqNum = toSeqNum;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (index < page.size()) {
+            return true;
+        }
+        if (nextSeqNum > toSeqNum) {
+            return false;
+        }
+        page = repository.getDataElements(nextSeqNum, (int) Math.min(PAGE_SIZE, toSeqNum - nextSeqNum + 1));
+        index = 0;
+        // A concurrent truncation moves the page past the requested elements, possibly beyond toSeqNum
+        if (!page.isEmpty() && page.getFirst().sequenceNum() <= toSeqNum) {
+            page = page.subList(0, (int) Math.min(page.size(), toSeqNum - page.getFirst().sequenceNum() + 1));
+            nextSeqNum = page.getLast().sequenceNum() + 1;
+            return true;
+        }
+        page = List.of();
+        nextSeqNum = toSeqNum + 1;
+        return false;
+    }
+
+    @Override
+    public DataElement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(index++);
+    }
+}
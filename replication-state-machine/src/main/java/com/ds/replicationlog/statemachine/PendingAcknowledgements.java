@@ -0,0 +1,116 @@
+package com.ds.replicationlog.statemachine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free ring of appends awaiting acknowledgements, indexed by sequence number. A slot state packs the sequence
+ * number owning the slot with the acknowledgements it still misses, and the slot stays owned until its waiter releases
+ * it.
+ */
+final class PendingAcknowledgements {
+    private static final int REMAINING_BITS = 16;
+    private static final long REMAINING_MASK = (1L << REMAINING_BITS) - 1;
+    private static final long FREE = 0;
+
+    private final int mask;
+    private final AtomicLongArray states;
+    private final Object[] waiters;
+
+    PendingAcknowledgements(int capacity) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        this.mask = capacity - 1;
+        this.states = new AtomicLongArray(capacity);
+        this.waiters = new Object[capacity];
+    }
+
+    /**
+     * @param waiter a thread which then calls {@link #await}, or a {@code CompletableFuture} released by its owner
+     * @return false when the slot is still owned by an older sequence number
+     */
+    boolean register(long seqNum, int required, Object waiter) {
+        if (required < 1) {
+            throw new IllegalArgumentException("Required acknowledgements must be positive");
+        }
+        var index = (int) (seqNum & mask);
+        if (states.get(index) != FREE) {
+            return false;
+        }
+        waiters[index] = waiter;
+        // Publishes the waiter together with the state
+        states.set(index, seqNum << REMAINING_BITS | Math.min(required, REMAINING_MASK));
+        return true;
+    }
+
+    boolean isRegistered(long seqNum) {
+        return states.get((int) (seqNum & mask)) >>> REMAINING_BITS == seqNum;
+    }
+
+    void acknowledge(long fromSeqNum, long toSeqNum) {
+        for (var seqNum = Math.max(fromSeqNum + 1, toSeqNum - mask); seqNum <= toSeqNum; seqNum++) {
+            var index = (int) (seqNum & mask);
+            var state = states.get(index);
+            // The slot may be owned by an older sequence number of the range as well
+            while ((state >>> REMAINING_BITS) > fromSeqNum && (state >>> REMAINING_BITS) <= toSeqNum
+                    && (state & REMAINING_MASK) > 0) {
+                // Read before the CAS, which fails if the slot has been released and taken by a newer sequence number
+                // meanwhile, so a waiter read after it could belong to that one
+                var waiter = waiters[index];
+                if (states.compareAndSet(index, state, state - 1)) {
+                    if ((state & REMAINING_MASK) == 1) {
+                        wake(waiter);
+                    }
+                    break;
+                }
+                state = states.get(index);
+            }
+        }
+    }
+
+    private static void wake(Object waiter) {
+        if (waiter instanceof Thread thread) {
+            LockSupport.unpark(thread);
+        } else if (waiter instanceof CompletableFuture<?> future) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Must be called by the thread registered as the waiter, releases the slot.
+     */
+    boolean await(long seqNum, long timeoutNanos) throws InterruptedException {
+        var index = (int) (seqNum & mask);
+        var deadline = System.nanoTime() + timeoutNanos;
+        try {
+            while ((states.get(index) & REMAINING_MASK) > 0) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                var remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+            return true;
+        } finally {
+            release(seqNum);
+        }
+    }
+
+    void release(long seqNum) {
+        var index = (int) (seqNum & mask);
+        var state = states.get(index);
+        if (state >>> REMAINING_BITS != seqNum) {
+            return;
+        }
+        waiters[index] = null;
+        // Retried, as a concurrent acknowledgement may still count the slot down
+        while (state >>> REMAINING_BITS == seqNum && !states.compareAndSet(index, state, FREE)) {
+            state = states.get(index);
+        }
+    }
+}
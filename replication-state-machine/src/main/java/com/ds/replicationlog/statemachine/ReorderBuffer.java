@@ -0,0 +1,131 @@
+package com.ds.replicationlog.statemachine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Window of pushed elements awaiting apply, a ring indexed by sequence number starting right after the applied one.
+ */
+final class ReorderBuffer {
+    private final DataElement[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition offered = lock.newCondition();
+    private long nextSeqNum;
+    private long highestOfferedSeqNum;
+    private int size;
+
+    ReorderBuffer(int capacity, long appliedSeqNum) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.slots = new DataElement[capacity];
+        this.nextSeqNum = appliedSeqNum + 1;
+        this.highestOfferedSeqNum = appliedSeqNum;
+    }
+
+    /**
+     * @return false for a duplicate, an applied element or one beyond the window, which is left to be fetched from
+     * master
+     */
+    boolean offer(DataElement dataElement) {
+        var seqNum = dataElement.sequenceNum();
+        lock.lock();
+        try {
+            // Recorded for refused elements as well, so the gap up to them is filled from master
+            highestOfferedSeqNum = Math.max(highestOfferedSeqNum, seqNum);
+            if (seqNum < nextSeqNum || seqNum - nextSeqNum >= slots.length || slots[indexOf(seqNum)] != null) {
+                return false;
+            }
+            slots[indexOf(seqNum)] = dataElement;
+            size++;
+            offered.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the contiguous run after the applied elements, or an empty list if the next element is still missing
+     * after {@code timeoutNanos}, or after {@code gapNanos} once later elements have been offered.
+     */
+    List<DataElement> awaitContiguous(int limit, long timeoutNanos, long gapNanos) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            var deadline = System.nanoTime() + timeoutNanos;
+            var gapDeadline = Long.MAX_VALUE;
+            while (slots[indexOf(nextSeqNum)] == null) {
+                var now = System.nanoTime();
+                if (highestOfferedSeqNum >= nextSeqNum && gapDeadline == Long.MAX_VALUE) {
+                    gapDeadline = now + gapNanos;
+                }
+                var remainingNanos = Math.min(deadline - now, gapDeadline - now);
+                if (remainingNanos <= 0) {
+                    return List.of();
+                }
+                offered.awaitNanos(remainingNanos);
+            }
+            var dataElements = new ArrayList<DataElement>();
+            for (var seqNum = nextSeqNum; dataElements.size() < Math.min(limit, slots.length); seqNum++) {
+                var dataElement = slots[indexOf(seqNum)];
+                if (dataElement == null) {
+                    break;
+                }
+                dataElements.add(dataElement);
+            }
+            return dataElements;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the last sequence number missing before the lowest buffered or highest offered element, the applied
+     * sequence number if there is no gap
+     */
+    long gapEnd() {
+        lock.lock();
+        try {
+            for (var seqNum = nextSeqNum; size > 0; seqNum++) {
+                if (slots[indexOf(seqNum)] != null) {
+                    return seqNum - 1;
+                }
+            }
+            return Math.max(highestOfferedSeqNum, nextSeqNum - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void advanceTo(long appliedSeqNum) {
+        lock.lock();
+        try {
+            var dropped = Math.min(appliedSeqNum + 1 - nextSeqNum, slots.length);
+            for (var seqNum = nextSeqNum; size > 0 && seqNum < nextSeqNum + dropped; seqNum++) {
+                if (slots[indexOf(seqNum)] != null) {
+                    slots[indexOf(seqNum)] = null;
+                    size--;
+                }
+            }
+            nextSeqNum = Math.max(nextSeqNum, appliedSeqNum + 1);
+            highestOfferedSeqNum = Math.max(highestOfferedSeqNum, nextSeqNum - 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int indexOf(long seqNum) {
+        return Math.floorMod(seqNum, slots.length);
+    }
+}
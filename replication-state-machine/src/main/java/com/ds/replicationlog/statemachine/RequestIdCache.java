@@ -0,0 +1,83 @@
+package com.ds.replicationlog.statemachine;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sequence number ranges of recent client request ids, kept for {@code retention} and at most {@code capacity} of them.
+ */
+final class RequestIdCache {
+    private final int capacity;
+    private final long retentionNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    RequestIdCache(int capacity, Duration retention) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        if (!retention.isPositive()) {
+            throw new IllegalArgumentException("Retention must be positive");
+        }
+        this.retentionNanos = retention.toNanos();
+    }
+
+    /**
+     * @return {@code null} if the id is new, otherwise the range it is or will be committed with
+     */
+    synchronized CompletableFuture<SeqNumRange> register(String requestId) {
+        requireNonNull(requestId);
+        var now = System.nanoTime();
+        var entry = entries.get(requestId);
+        if (entry != null && entry.expiresNanos() - now > 0) {
+            return entry.seqNums();
+        }
+        // Removed first, so a re-registered id moves to the end of the eviction order
+        entries.remove(requestId);
+        evict(now);
+        entries.put(requestId, new Entry(new CompletableFuture<>(), now + retentionNanos));
+        return null;
+    }
+
+    private void evict(long now) {
+        var iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entries.size() < capacity && entry.expiresNanos() - now > 0) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    void committed(String requestId, SeqNumRange seqNums) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(requestId);
+        }
+        // Completed outside the lock, as retries waiting for it continue on this thread
+        if (entry != null) {
+            entry.seqNums().complete(seqNums);
+        }
+    }
+
+    void failed(String requestId, Throwable cause) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(requestId);
+        }
+        if (entry != null) {
+            entry.seqNums().completeExceptionally(cause);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(CompletableFuture<SeqNumRange> seqNums, long expiresNanos) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.ds.replicationlog.statemachine;
+
+/**
+ * Contiguous range of sequence numbers assigned to a batch of elements, both ends included.
+ */
+public record SeqNumRange(long firstSeqNum, long lastSeqNum) {
+}
@@ -3,12 +3,17 @@ package com.ds.replicationlog.statemachine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import static java.util.Objects.requireNonNull;
 
@@ -16,113 +21,385 @@ public class Slave {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private static final long QUEUE_POLL_WAIT_MS = 1_000;
+    private static final long GAP_FILL_DELAY_MS = 10;
     private static final long AFTER_FAILURE_WAIT_MS = 1_000;
+    private static final Duration DEFAULT_ACKNOWLEDGEMENT_INTERVAL = Duration.ofMillis(5);
+    private static final int DEFAULT_CATCH_UP_PAGE_SIZE = 1_000;
+    private static final long DEFAULT_CATCH_UP_PAGE_MAX_BYTES = 4L * 1024 * 1024;
+    private static final int MAX_APPLY_BATCH_SIZE = 4_096;
     private final Thread replicationThread;
-    private final PriorityBlockingQueue<DataElement> replicationQueue;
+    private final Thread acknowledgementThread;
+    private final ReorderBuffer reorderBuffer;
+    private final AtomicReference<CompletableFuture<Void>> nextApply = new AtomicReference<>(
+            new CompletableFuture<>());
     private final MasterClient masterClient;
     private final DataRepository repository;
     private final String replicaId;
 
-    private volatile long appliedSeqNum = 0;
+    private final long acknowledgementIntervalMs;
+    private final int catchUpPageSize;
+    private final long catchUpPageMaxBytes;
+    private final SlaveMetrics metrics;
+    private final Duration pullWait;
 
-    public Slave(DataRepository repository, MasterClient masterClient, int replicationQueueCapacity, String replicaId) {
+    private volatile long appliedSeqNum;
+    private volatile boolean acknowledgementRequested;
+
+    public Slave(DataRepository repository, MasterClient masterClient, int reorderWindowSize, String replicaId) {
+        this(repository, masterClient, reorderWindowSize, replicaId, DEFAULT_ACKNOWLEDGEMENT_INTERVAL,
+                DEFAULT_CATCH_UP_PAGE_SIZE, DEFAULT_CATCH_UP_PAGE_MAX_BYTES);
+    }
+
+    public Slave(DataRepository repository, MasterClient masterClient, int reorderWindowSize, String replicaId,
+                 Duration acknowledgementInterval, int catchUpPageSize, long catchUpPageMaxBytes) {
+        this(repository, masterClient, reorderWindowSize, replicaId, acknowledgementInterval, catchUpPageSize,
+                catchUpPageMaxBytes, SlaveMetrics.NONE);
+    }
+
+    public Slave(DataRepository repository, MasterClient masterClient, int reorderWindowSize, String replicaId,
+                 Duration acknowledgementInterval, int catchUpPageSize, long catchUpPageMaxBytes,
+                 SlaveMetrics metrics) {
+        this(repository, masterClient, reorderWindowSize, replicaId, acknowledgementInterval, catchUpPageSize,
+                catchUpPageMaxBytes, metrics, Duration.ZERO);
+    }
+
+    /**
+     * A positive {@code pullWait} makes the slave replicate by long polling master for pages of new elements, each
+     * poll held by master for up to {@code pullWait}, instead of applying elements pushed to {@link #appendData}.
+     */
+    public Slave(DataRepository repository, MasterClient masterClient, int reorderWindowSize, String replicaId,
+                 Duration acknowledgementInterval, int catchUpPageSize, long catchUpPageMaxBytes,
+                 SlaveMetrics metrics, Duration pullWait) {
         this.repository = requireNonNull(repository);
         this.masterClient = requireNonNull(masterClient);
-        if (replicationQueueCapacity < 1) {
-            throw new IllegalArgumentException("Replication queue capacity must be positive");
+        if (reorderWindowSize < 1) {
+            throw new IllegalArgumentException("Reorder window size must be positive");
         }
-        this.replicationQueue = new PriorityBlockingQueue<>(replicationQueueCapacity, Comparator
-                .comparingLong(DataElement::sequenceNum));
         this.replicaId = requireNonNull(replicaId);
+        if (acknowledgementInterval.isNegative()) {
+            throw new IllegalArgumentException("Acknowledgement interval cannot be negative");
+        }
+        this.acknowledgementIntervalMs = acknowledgementInterval.toMillis();
+        if (catchUpPageSize < 1) {
+            throw new IllegalArgumentException("Catch up page size must be positive");
+        }
+        this.catchUpPageSize = catchUpPageSize;
+        if (catchUpPageMaxBytes < 1) {
+            throw new IllegalArgumentException("Catch up page max bytes must be positive");
+        }
+        this.catchUpPageMaxBytes = catchUpPageMaxBytes;
+        this.metrics = requireNonNull(metrics);
+        if (pullWait.isNegative()) {
+            throw new IllegalArgumentException("Pull wait cannot be negative");
+        }
+        this.pullWait = pullWait;
+        this.appliedSeqNum = repository.getLastSeqNum();
+        this.reorderBuffer = new ReorderBuffer(reorderWindowSize, appliedSeqNum);
 
-        this.replicationThread = new Thread(() -> {
+        this.replicationThread = pullWait.isPositive() ? new Thread(this::pullData) : new Thread(() -> {
             var initialReplicationRequired = true;
             try {
                 while (!Thread.currentThread().isInterrupted()) {
                     if (initialReplicationRequired) {
-                        initialReplicationRequired = !replicateBacklog(appliedSeqNum + 1, () -> {});
+                        installMasterSnapshot();
+                        initialReplicationRequired = !replicateBacklog(appliedSeqNum + 1);
                     }
-                    appendQueuedData();
+                    applyBufferedData();
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         });
+        this.acknowledgementThread = new Thread(this::sendAcknowledgements);
     }
 
     public List<DataElement> getData(long fromSeqNum) {
         return repository.getDataElements(fromSeqNum);
     }
 
+    /**
+     * Iterates the elements from {@code fromSeqNum} up to the current last one lazily, see
+     * {@link DataRepository#iterate}.
+     */
+    public Iterator<DataElement> iterateData(long fromSeqNum) {
+        return repository.iterate(fromSeqNum);
+    }
+
+    public long getAppliedSeqNum() {
+        return appliedSeqNum;
+    }
+
+    /**
+     * Completes with the applied sequence number as soon as it reaches {@code seqNum}, so a client which passes the
+     * sequence number returned by its append reads its own writes from this replica. Fails with
+     * {@link TimeoutException} if the replica is still behind when {@code wait} elapses.
+     */
+    public CompletableFuture<Long> awaitApplied(long seqNum, Duration wait) {
+        if (wait.isNegative()) {
+            throw new IllegalArgumentException("Wait cannot be negative");
+        }
+        return awaitApplied(seqNum, System.nanoTime() + wait.toNanos());
+    }
+
+    private CompletableFuture<Long> awaitApplied(long seqNum, long deadlineNanos) {
+        // Taken before the check, so an apply in between completes the future instead of being missed
+        var apply = nextApply.get();
+        var seqNumApplied = appliedSeqNum;
+        if (seqNumApplied >= seqNum) {
+            return CompletableFuture.completedFuture(seqNumApplied);
+        }
+        var remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return CompletableFuture.failedFuture(new TimeoutException("Sequence number " + seqNum
+                    + " has not been applied yet, applied is " + seqNumApplied));
+        }
+        // A copy, so the timeout does not complete the future shared with other waiters
+        return apply.copy().completeOnTimeout(null, remainingNanos, TimeUnit.NANOSECONDS)
+                .thenCompose(ignored -> awaitApplied(seqNum, deadlineNanos));
+    }
+
+    public int getReplicationQueueSize() {
+        return reorderBuffer.size();
+    }
+
     public void appendData(DataElement dataElement) {
         requireNonNull(dataElement);
-        replicationQueue.add(dataElement);
-    }
-
-    private void appendQueuedData() throws InterruptedException {
-        var dataElement = replicationQueue.poll(QUEUE_POLL_WAIT_MS, TimeUnit.MILLISECONDS);
-        if (dataElement != null) {
-            var successfulSave = true;
-            if (appliedSeqNum >= dataElement.sequenceNum()) {
-                acknowledge(new Acknowledgement(replicaId, dataElement.sequenceNum()));
-            } else if (appliedSeqNum + 1 == dataElement.sequenceNum()) {
-                successfulSave = appendDataAndAcknowledge(dataElement, replicationQueue::put);
-            } else {
-                successfulSave = replicateBacklog(appliedSeqNum + 1, () -> replicationQueue.put(dataElement));
+        buffer(dataElement);
+    }
+
+    public void appendData(List<DataElement> dataElements) {
+        dataElements.forEach(Objects::requireNonNull);
+        dataElements.forEach(this::buffer);
+    }
+
+    /**
+     * Re-acknowledges an applied element, as master pushes it again only if it has missed the acknowledgement, and
+     * buffers any other one. An element beyond the reorder window is dropped and fetched as part of a gap later on.
+     */
+    private void buffer(DataElement dataElement) {
+        if (dataElement.sequenceNum() <= appliedSeqNum) {
+            requestAcknowledgement();
+        } else if (!reorderBuffer.offer(dataElement)) {
+            logger.debug("Element {} is beyond the reorder window or buffered already",
+                    dataElement.sequenceNum());
+        }
+    }
+
+    /**
+     * Applies the contiguous run of buffered elements after the applied ones. A gap which is not closed by pushes
+     * within the gap fill delay is filled from master, fetching only the missing range, as the elements after it are
+     * buffered already or have been refused for being beyond the window.
+     */
+    private void applyBufferedData() throws InterruptedException {
+        var dataElements = reorderBuffer.awaitContiguous(MAX_APPLY_BATCH_SIZE,
+                TimeUnit.MILLISECONDS.toNanos(QUEUE_POLL_WAIT_MS), TimeUnit.MILLISECONDS.toNanos(GAP_FILL_DELAY_MS));
+        var successfulSave = true;
+        if (!dataElements.isEmpty()) {
+            successfulSave = appendDataElements(dataElements);
+        } else {
+            var gapEnd = reorderBuffer.gapEnd();
+            if (gapEnd > appliedSeqNum) {
+                successfulSave = fillGap(gapEnd);
             }
-            if (!successfulSave) {
-                Thread.sleep(AFTER_FAILURE_WAIT_MS);
+        }
+        if (!successfulSave) {
+            Thread.sleep(AFTER_FAILURE_WAIT_MS);
+        }
+    }
+
+    private boolean fillGap(long toSeqNum) {
+        var fromSeqNum = appliedSeqNum + 1;
+        var startNanos = System.nanoTime();
+        try {
+            while (appliedSeqNum < toSeqNum) {
+                var page = masterClient.getDataElements(appliedSeqNum + 1,
+                        (int) Math.min(catchUpPageSize, toSeqNum - appliedSeqNum), catchUpPageMaxBytes);
+                if (page.isEmpty()) {
+                    throw new IllegalStateException("Master returned no elements for the gap after " + appliedSeqNum);
+                }
+                appendPage(page);
             }
+            metrics.catchUpCompleted(toSeqNum - fromSeqNum + 1, System.nanoTime() - startNanos);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to fill the replication gap up to {}", toSeqNum, e);
+            return false;
         }
     }
 
-    private boolean replicateBacklog(long fromSeqNum, Runnable onError) {
+    /**
+     * Pulls the backlog from master page by page, requesting the next page before applying the current one, so
+     * fetching overlaps with applying while at most two pages are held in memory.
+     */
+    private boolean replicateBacklog(long fromSeqNum) {
         var successfulSave = true;
+        var startNanos = System.nanoTime();
+        var nextPage = requestMasterData(fromSeqNum, Duration.ZERO);
         try {
-            getMasterData(fromSeqNum).stream().map(DataElement::data).forEach(this::appendData);
+            var page = nextPage.join();
+            while (!page.isEmpty()) {
+                nextPage = requestMasterData(page.getLast().sequenceNum() + 1, Duration.ZERO);
+                appendPage(page);
+                page = nextPage.join();
+            }
+            metrics.catchUpCompleted(appliedSeqNum - fromSeqNum + 1, System.nanoTime() - startNanos);
         } catch (RuntimeException e) {
             logger.warn("Failed backlog replication", e);
+            nextPage.cancel(true);
             successfulSave = false;
-            onError.run();
         }
         return successfulSave;
     }
 
-    private List<DataElement> getMasterData(long fromSeqNum) {
-        return masterClient.getDataElements(fromSeqNum).stream().sorted(Comparator.comparingLong(
-                DataElement::sequenceNum)).collect(Collectors.toList());
+    /**
+     * Long polls master for the elements after the applied ones, sending the next poll before applying the page
+     * returned by the previous one. Under load every poll returns a full page, when idle a poll is held by master
+     * until the next commit.
+     */
+    private void pullData() {
+        installMasterSnapshot();
+        try {
+            var nextPage = requestMasterData(appliedSeqNum + 1, pullWait);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    var page = nextPage.get();
+                    nextPage = requestMasterData(page.isEmpty() ? appliedSeqNum + 1 : page.getLast().sequenceNum() + 1,
+                            pullWait);
+                    appendPage(page);
+                } catch (ExecutionException | RuntimeException e) {
+                    logger.warn("Failed to pull data from master", e);
+                    nextPage.cancel(true);
+                    Thread.sleep(AFTER_FAILURE_WAIT_MS);
+                    installMasterSnapshot();
+                    nextPage = requestMasterData(appliedSeqNum + 1, pullWait);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    private void acknowledge(Acknowledgement acknowledgement) {
+    /**
+     * Bootstraps an empty snapshot keeping repository from the master snapshot, so only the log tail after it has to
+     * be replicated element by element. On failure the whole log is replicated instead.
+     */
+    private void installMasterSnapshot() {
+        if (appliedSeqNum > 0 || !(repository instanceof SnapshotRepository snapshotRepository)) {
+            return;
+        }
+        var startNanos = System.nanoTime();
+        try (var snapshot = masterClient.getSnapshot()) {
+            var seqNum = snapshotRepository.installSnapshot(snapshot);
+            if (seqNum > 0) {
+                markApplied(seqNum);
+                metrics.catchUpCompleted(seqNum, System.nanoTime() - startNanos);
+                logger.info("Installed master snapshot up to {}", seqNum);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to install master snapshot", e);
+        }
+    }
+
+    private CompletableFuture<List<DataElement>> requestMasterData(long fromSeqNum, Duration wait) {
+        var page = new CompletableFuture<List<DataElement>>();
+        Thread.startVirtualThread(() -> {
+            try {
+                page.complete(wait.isPositive()
+                        ? masterClient.getDataElements(fromSeqNum, catchUpPageSize, catchUpPageMaxBytes, wait)
+                        : masterClient.getDataElements(fromSeqNum, catchUpPageSize, catchUpPageMaxBytes));
+            } catch (RuntimeException e) {
+                page.completeExceptionally(e);
+            }
+        });
+        return page;
+    }
+
+    private void appendPage(List<DataElement> page) {
+        if (page.isEmpty()) {
+            return;
+        }
+        for (var i = 0; i < page.size(); i++) {
+            if (page.get(i).sequenceNum() != appliedSeqNum + 1 + i) {
+                throw new IllegalStateException("Master returned a non contiguous page starting at "
+                        + page.getFirst().sequenceNum() + " while " + appliedSeqNum + " is applied");
+            }
+        }
+        apply(page);
+    }
+
+    private void apply(List<DataElement> dataElements) {
+        var startNanos = System.nanoTime();
+        markApplied(repository.appendAll(dataElements.stream().map(DataElement::data).toList()));
+        metrics.dataApplied(dataElements.size(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Acknowledges the applied sequence number as soon as it moves, then waits for the acknowledgement interval, so
+     * under load one cumulative acknowledgement covers every element applied during the interval.
+     */
+    private void sendAcknowledgements() {
+        var acknowledgedSeqNum = 0L;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var seqNum = appliedSeqNum;
+                if (seqNum > acknowledgedSeqNum || acknowledgementRequested) {
+                    acknowledgementRequested = false;
+                    if (acknowledge(new Acknowledgement(replicaId, seqNum))) {
+                        acknowledgedSeqNum = seqNum;
+                        Thread.sleep(acknowledgementIntervalMs);
+                    } else {
+                        Thread.sleep(AFTER_FAILURE_WAIT_MS);
+                    }
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean acknowledge(Acknowledgement acknowledgement) {
         try {
             masterClient.acknowledgeReception(acknowledgement);
+            return true;
         } catch (RuntimeException e) {
             logger.warn("Failed to acknowledge data element reception", e);
+            return false;
         }
     }
 
-    private boolean appendDataAndAcknowledge(DataElement dataElement, Consumer<DataElement> onError) {
+    private void requestAcknowledgement() {
+        acknowledgementRequested = true;
+        LockSupport.unpark(acknowledgementThread);
+    }
+
+    private void markApplied(long seqNum) {
+        appliedSeqNum = seqNum;
+        reorderBuffer.advanceTo(seqNum);
+        LockSupport.unpark(acknowledgementThread);
+        nextApply.getAndSet(new CompletableFuture<>()).complete(null);
+    }
+
+    private boolean appendDataElements(List<DataElement> dataElements) {
         var successfulSave = true;
         try {
-            appendData(dataElement.data());
-            acknowledge(new Acknowledgement(replicaId, dataElement.sequenceNum()));
+            apply(dataElements);
         } catch (RuntimeException e) {
+            // The elements stay buffered until applied, so the next attempt retries them
             successfulSave = false;
             logger.warn("Failed to append data", e);
-            onError.accept(dataElement);
         }
         return successfulSave;
     }
 
-    private void appendData(String data) {
-        appliedSeqNum = repository.appendData(data);
-    }
-
     public void start() {
         replicationThread.start();
+        acknowledgementThread.start();
     }
 
     public void stop() {
         replicationThread.interrupt();
+        acknowledgementThread.interrupt();
     }
 }
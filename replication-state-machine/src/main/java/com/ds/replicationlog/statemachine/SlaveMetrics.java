@@ -0,0 +1,15 @@
+package com.ds.replicationlog.statemachine;
+
+/**
+ * Receives measurements of the slave apply loop. Methods are called on the replication thread, so implementations
+ * must be cheap.
+ */
+public interface SlaveMetrics {
+    SlaveMetrics NONE = new SlaveMetrics() {};
+
+    default void dataApplied(int count, long durationNanos) {
+    }
+
+    default void catchUpCompleted(long count, long durationNanos) {
+    }
+}
@@ -1,5 +1,8 @@
 package com.ds.replicationlog.statemachine;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface SlavesClient {
-    void appendData(DataElement dataElement);
+    CompletableFuture<Void> appendData(List<DataElement> dataElements);
 }
@@ -0,0 +1,32 @@
+package com.ds.replicationlog.statemachine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Repository whose prefix is compacted into a snapshot, so the log only holds the recent tail and a bootstrapping
+ * node can copy the snapshot as a whole instead of replaying the log element by element.
+ */
+public interface SnapshotRepository extends DataRepository {
+    /**
+     * Returns the last sequence number held by the snapshot, zero when nothing has been snapshotted yet.
+     */
+    long getSnapshotSeqNum();
+
+    /**
+     * Moves the elements up to {@code seqNum} from the log to the snapshot.
+     */
+    void snapshot(long seqNum);
+
+    /**
+     * Writes the current snapshot to {@code target} and returns the last sequence number it holds.
+     */
+    long transferSnapshot(OutputStream target) throws IOException;
+
+    /**
+     * Replaces the content of an empty repository with a snapshot written by {@link #transferSnapshot}, so the log
+     * continues after it, and returns the last sequence number it holds.
+     */
+    long installSnapshot(InputStream source) throws IOException;
+}
@@ -0,0 +1,17 @@
+package com.ds.replicationlog.statemachine;
+
+/**
+ * Log which can drop its prefix or be emptied, as the log wrapped by a snapshotting repository needs to be.
+ */
+public interface TruncatableRepository extends DataRepository {
+    /**
+     * Drops the elements below {@code seqNum}, reads starting below it return elements from the first retained one.
+     */
+    void truncateBefore(long seqNum);
+
+    /**
+     * Drops every element and continues numbering after {@code seqNum}, which cannot be below the last sequence
+     * number.
+     */
+    void restartAfter(long seqNum);
+}
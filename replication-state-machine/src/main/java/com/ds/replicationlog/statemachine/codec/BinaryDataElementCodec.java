@@ -0,0 +1,187 @@
+package com.ds.replicationlog.statemachine.codec;
+
+import com.ds.replicationlog.statemachine.DataElement;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Length-prefixed binary encoding of data elements for replication traffic.
+ * <p>
+ * A message is the varint element count followed by every element as the zigzag varint difference between its
+ * sequence number and the previous one (the first is relative to zero), the varint length of its UTF-8 payload and
+ * the payload bytes. Contiguous sequence numbers therefore take a single byte and payloads are copied as is.
+ */
+public final class BinaryDataElementCodec {
+    public static final String MEDIA_TYPE = "application/vnd.replication-log.elements";
+
+    private static final int MAX_VARINT_LENGTH = 10;
+    private static final int MAX_UTF8_BYTES_PER_CHAR = 3;
+
+    private BinaryDataElementCodec() {
+    }
+
+    /**
+     * Returns a buffer capacity which is always enough to encode {@code dataElements}, without inspecting payloads.
+     */
+    public static int maxEncodedLength(List<DataElement> dataElements) {
+        long length = MAX_VARINT_LENGTH;
+        for (var dataElement : dataElements) {
+            length += 2 * MAX_VARINT_LENGTH + (long) MAX_UTF8_BYTES_PER_CHAR * dataElement.data().length();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Data elements are too large to be encoded in one message");
+        }
+        return (int) length;
+    }
+
+    public static void encode(List<DataElement> dataElements, ByteBuffer target) {
+        writeVarint(target, dataElements.size());
+        var previousSeqNum = 0L;
+        for (var dataElement : dataElements) {
+            writeVarint(target, zigzag(dataElement.sequenceNum() - previousSeqNum));
+            previousSeqNum = dataElement.sequenceNum();
+            writeVarint(target, utf8Length(dataElement.data()));
+            writeUtf8(target, dataElement.data());
+        }
+    }
+
+    public static List<DataElement> decode(ByteBuffer source) {
+        try {
+            var count = readLength(source);
+            var dataElements = new ArrayList<DataElement>(Math.min(count, source.remaining()));
+            var seqNum = 0L;
+            for (var i = 0; i < count; i++) {
+                seqNum += unzigzag(readVarint(source));
+                var length = readLength(source);
+                dataElements.add(new DataElement(readUtf8(source, length), seqNum));
+            }
+            if (source.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected trailing bytes after data elements");
+            }
+            return dataElements;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Data elements message is truncated", e);
+        }
+    }
+
+    /**
+     * Returns the amount of bytes {@code data} takes in UTF-8, counting unpaired surrogates as the single byte
+     * replacement {@link String#getBytes} would emit for them.
+     */
+    public static long utf8Length(String data) {
+        long length = data.length();
+        for (var i = 0; i < data.length(); i++) {
+            var c = data.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                length++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < data.length()
+                    && Character.isLowSurrogate(data.charAt(i + 1))) {
+                length += 2;
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static void writeUtf8(ByteBuffer target, String data) {
+        var i = 0;
+        if (target.hasArray()) {
+            // Bulk copy of the leading ASCII run, which is usually the whole payload
+            var array = target.array();
+            var offset = target.arrayOffset() + target.position();
+            var asciiLength = Math.min(data.length(), target.remaining());
+            for (; i < asciiLength; i++) {
+                var c = data.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                array[offset + i] = (byte) c;
+            }
+            target.position(target.position() + i);
+        }
+        for (; i < data.length(); i++) {
+            var c = data.charAt(i);
+            if (c < 0x80) {
+                target.put((byte) c);
+            } else if (c < 0x800) {
+                target.put((byte) (0xC0 | c >> 6));
+                target.put((byte) (0x80 | c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                target.put((byte) (0xE0 | c >> 12));
+                target.put((byte) (0x80 | c >> 6 & 0x3F));
+                target.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < data.length()
+                    && Character.isLowSurrogate(data.charAt(i + 1))) {
+                var codePoint = Character.toCodePoint(c, data.charAt(++i));
+                target.put((byte) (0xF0 | codePoint >> 18));
+                target.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                target.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                target.put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                target.put((byte) '?');
+            }
+        }
+    }
+
+    private static String readUtf8(ByteBuffer source, int length) {
+        if (length > source.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String data;
+        if (source.hasArray()) {
+            data = new String(source.array(), source.arrayOffset() + source.position(), length,
+                    StandardCharsets.UTF_8);
+        } else {
+            var bytes = new byte[length];
+            source.get(source.position(), bytes);
+            data = new String(bytes, StandardCharsets.UTF_8);
+        }
+        source.position(source.position() + length);
+        return data;
+    }
+
+    private static void writeVarint(ByteBuffer target, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+
+    private static long readVarint(ByteBuffer source) {
+        var value = 0L;
+        for (var shift = 0; shift < 64; shift += 7) {
+            var b = source.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int readLength(ByteBuffer source) {
+        var length = readVarint(source);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed length: " + length);
+        }
+        return (int) length;
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ds.replicationlog.statemachine.codec;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Keeps up to {@code maxPooledBuffers} heap buffers of {@code bufferSize} bytes for reuse. Larger requests are served
+ * with buffers of their own size which are never pooled, so a rare huge message does not pin its memory.
+ */
+public class ByteBufferPool {
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final int bufferSize;
+
+    public ByteBufferPool(int bufferSize, int maxPooledBuffers) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        if (maxPooledBuffers < 1) {
+            throw new IllegalArgumentException("Max pooled buffers must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    /**
+     * Returns a cleared buffer whose limit is {@code capacity}.
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        if (capacity > bufferSize) {
+            return ByteBuffer.allocate(capacity);
+        }
+        var buffer = buffers.poll();
+        return (buffer == null ? ByteBuffer.allocate(bufferSize) : buffer).limit(capacity);
+    }
+
+    /**
+     * Returns {@code buffer} to the pool. The caller must not touch it afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() == bufferSize) {
+            buffers.offer(buffer.clear());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.ds.replicationlog.statemachine.codec;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.DataElement;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Frames of the streaming replication channel, each a type byte followed by its body. Master sends data frames
+ * holding the length of a {@link BinaryDataElementCodec} message and the message itself, slaves send acknowledgement
+ * frames holding the replica id and the acknowledged sequence number.
+ */
+public final class ReplicationStreamCodec {
+    private static final byte DATA_FRAME = 1;
+    private static final byte ACKNOWLEDGEMENT_FRAME = 2;
+
+    private ReplicationStreamCodec() {
+    }
+
+    public static void writeDataElements(DataOutputStream out, List<DataElement> dataElements, ByteBufferPool pool)
+            throws IOException {
+        var buffer = pool.acquire(BinaryDataElementCodec.maxEncodedLength(dataElements));
+        try {
+            BinaryDataElementCodec.encode(dataElements, buffer);
+            out.writeByte(DATA_FRAME);
+            out.writeInt(buffer.position());
+            out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Reads the next data frame, failing without buffering it when it claims more than {@code maxLength} bytes.
+     */
+    public static List<DataElement> readDataElements(DataInputStream in, int maxLength, ByteBufferPool pool)
+            throws IOException {
+        readFrameType(in, DATA_FRAME);
+        var length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Malformed data frame length: " + length);
+        }
+        if (length > maxLength) {
+            throw new IOException("Data frame length " + length + " exceeds " + maxLength + " bytes");
+        }
+        var buffer = pool.acquire(length);
+        try {
+            in.readFully(buffer.array(), buffer.arrayOffset(), length);
+            return BinaryDataElementCodec.decode(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed data frame", e);
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    public static void writeAcknowledgement(DataOutputStream out, Acknowledgement acknowledgement)
+            throws IOException {
+        out.writeByte(ACKNOWLEDGEMENT_FRAME);
+        out.writeUTF(acknowledgement.replicaId());
+        out.writeLong(acknowledgement.sequenceNum());
+    }
+
+    public static Acknowledgement readAcknowledgement(DataInputStream in) throws IOException {
+        readFrameType(in, ACKNOWLEDGEMENT_FRAME);
+        return new Acknowledgement(in.readUTF(), in.readLong());
+    }
+
+    private static void readFrameType(DataInputStream in, byte expectedType) throws IOException {
+        var type = in.readByte();
+        if (type != expectedType) {
+            throw new IOException("Unexpected frame type: " + type);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ds.replicationlog.statemachine.http;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Long-lived HTTP clients shared by the replication clients of master and slave.
+ * <p>
+ * The connection pool is configured by two system properties, {@code jdk.httpclient.connectionPoolSize}, the maximum
+ * number of idle HTTP/1.1 connections kept by a client, 0 for unbounded, and {@code jdk.httpclient.keepalive.timeout},
+ * the seconds an idle connection is kept. The JDK client reads them once per JVM, when its first client is created, so
+ * they are set at launch with {@code -D} flags rather than from the application configuration.
+ * <p>
+ * The clients use the default executor of the JDK client, which is shut down together with the client by
+ * {@link HttpClient#close()}.
+ */
+public final class HttpClients {
+    private HttpClients() {
+    }
+
+    public static HttpClient create(HttpClient.Version version, Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only log stored in fixed-size chunks indexed directly by sequence number.
+ * <p>
+ * Appends are serialised, reads are lock-free: an element is written into its chunk before {@code lastSeqNum}
+ * is published, so a reader which has observed {@code lastSeqNum} always sees a consistent prefix of the log.
+ * Truncation releases whole chunks only, after publishing the new {@code firstSeqNum}, so a reader which finds a
+ * released chunk restarts from the first retained element.
+ */
+public class ChunkedArrayRepo implements TruncatableRepository {
+    private static final int CHUNK_SIZE_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SIZE_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNKS = 16;
+
+    private final Object appendLock = new Object();
+    private volatile DataElement[][] chunks = new DataElement[INITIAL_CHUNKS][];
+    private volatile long firstSeqNum = 1;
+    private volatile long lastSeqNum = 0;
+
+    @Override
+    public long appendData(String data) {
+        requireNonNull(data);
+        synchronized (appendLock) {
+            var seqNum = lastSeqNum + 1;
+            chunkFor(seqNum - 1)[(int) ((seqNum - 1) & CHUNK_MASK)] = new DataElement(data, seqNum);
+            lastSeqNum = seqNum;
+            return seqNum;
+        }
+    }
+
+    @Override
+    public long appendAll(List<String> data) {
+        data.forEach(Objects::requireNonNull);
+        synchronized (appendLock) {
+            var seqNum = lastSeqNum;
+            for (var d : data) {
+                seqNum++;
+                chunkFor(seqNum - 1)[(int) ((seqNum - 1) & CHUNK_MASK)] = new DataElement(d, seqNum);
+            }
+            lastSeqNum = seqNum;
+            return seqNum;
+        }
+    }
+
+    private DataElement[] chunkFor(long index) {
+        var chunkIndex = (int) (index >>> CHUNK_SIZE_BITS);
+        var currentChunks = chunks;
+        if (chunkIndex >= currentChunks.length) {
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length * 2);
+            chunks = currentChunks;
+        }
+        if (currentChunks[chunkIndex] == null) {
+            currentChunks[chunkIndex] = new DataElement[CHUNK_SIZE];
+        }
+        return currentChunks[chunkIndex];
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        var fromIndex = Math.max(fromSeqNum, firstSeqNum) - 1;
+        var toSeqNum = Math.min(lastSeqNum, fromIndex + limit);
+        if (fromIndex >= toSeqNum) {
+            return List.of();
+        }
+        var currentChunks = chunks;
+        var result = new DataElement[(int) (toSeqNum - fromIndex)];
+        var copied = 0;
+        var index = fromIndex;
+        while (index < toSeqNum) {
+            var chunk = currentChunks[(int) (index >>> CHUNK_SIZE_BITS)];
+            if (chunk == null) {
+                return getDataElements(fromSeqNum, limit);
+            }
+            var offset = (int) (index & CHUNK_MASK);
+            var length = (int) Math.min(CHUNK_SIZE - offset, toSeqNum - index);
+            System.arraycopy(chunk, offset, result, copied, length);
+            copied += length;
+            index += length;
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * Iterates the chunks in place, without copying them into pages.
+     */
+    @Override
+    public Iterator<DataElement> iterate(long fromSeqNum) {
+        var toSeqNum = lastSeqNum;
+        return new Iterator<>() {
+            private long nextSeqNum = Math.max(fromSeqNum, 1);
+            private DataElement nextElement;
+
+            @Override
+            public boolean hasNext() {
+                while (nextElement == null) {
+                    nextSeqNum = Math.max(nextSeqNum, firstSeqNum);
+                    if (nextSeqNum > toSeqNum) {
+                        return false;
+                    }
+                    var chunk = chunks[(int) ((nextSeqNum - 1) >>> CHUNK_SIZE_BITS)];
+                    // A released chunk or a restarted log has moved firstSeqNum, which the next round skips to
+                    nextElement = chunk == null ? null : chunk[(int) ((nextSeqNum - 1) & CHUNK_MASK)];
+                }
+                return true;
+            }
+
+            @Override
+            public DataElement next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var element = nextElement;
+                nextElement = null;
+                nextSeqNum++;
+                return element;
+            }
+        };
+    }
+
+    @Override
+    public long getLastSeqNum() {
+        return lastSeqNum;
+    }
+
+    @Override
+    public void truncateBefore(long seqNum) {
+        synchronized (appendLock) {
+            var horizon = Math.min(seqNum, lastSeqNum + 1);
+            if (horizon <= firstSeqNum) {
+                return;
+            }
+            var firstChunk = (int) ((firstSeqNum - 1) >>> CHUNK_SIZE_BITS);
+            firstSeqNum = horizon;
+            var currentChunks = chunks;
+            for (var chunkIndex = firstChunk; chunkIndex < (horizon - 1) >>> CHUNK_SIZE_BITS; chunkIndex++) {
+                currentChunks[chunkIndex] = null;
+            }
+        }
+    }
+
+    @Override
+    public void restartAfter(long seqNum) {
+        synchronized (appendLock) {
+            if (seqNum < lastSeqNum) {
+                throw new IllegalArgumentException("Log cannot be restarted below its last sequence number");
+            }
+            firstSeqNum = seqNum + 1;
+            chunks = new DataElement[Math.max(INITIAL_CHUNKS, (int) (seqNum >>> CHUNK_SIZE_BITS) + 1)][];
+            lastSeqNum = seqNum;
+        }
+    }
+}
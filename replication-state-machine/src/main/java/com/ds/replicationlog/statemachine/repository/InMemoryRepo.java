@@ -1,18 +1,19 @@
 package com.ds.replicationlog.statemachine.repository;
 
 import com.ds.replicationlog.statemachine.DataElement;
-import com.ds.replicationlog.statemachine.DataRepository;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
 
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 
-public class InMemoryRepo implements DataRepository {
+public class InMemoryRepo implements TruncatableRepository {
     private final AtomicLong sequenceNum = new AtomicLong();
     private final Map<Long, DataElement> dataElements = new ConcurrentHashMap<>();
     @Override
@@ -24,8 +25,42 @@ public class InMemoryRepo implements DataRepository {
     }
 
     @Override
-    public List<DataElement> getDataElements(long fromSeqNum) {
+    public long appendAll(List<String> data) {
+        data.forEach(Objects::requireNonNull);
+        var lastSeqNum = sequenceNum.addAndGet(data.size());
+        var seqNum = lastSeqNum - data.size();
+        for (var d : data) {
+            seqNum++;
+            dataElements.put(seqNum, new DataElement(d, seqNum));
+        }
+        return lastSeqNum;
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
         return dataElements.values().stream().sorted(Comparator.comparingLong(DataElement::sequenceNum))
-                .filter(d -> d.sequenceNum() >= fromSeqNum).collect(Collectors.toList());
+                .filter(d -> d.sequenceNum() >= fromSeqNum).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public long getLastSeqNum() {
+        return sequenceNum.get();
+    }
+
+    @Override
+    public void truncateBefore(long seqNum) {
+        dataElements.keySet().removeIf(elementSeqNum -> elementSeqNum < seqNum);
+    }
+
+    @Override
+    public void restartAfter(long seqNum) {
+        if (seqNum < sequenceNum.get()) {
+            throw new IllegalArgumentException("Log cannot be restarted below its last sequence number");
+        }
+        dataElements.clear();
+        sequenceNum.set(seqNum);
     }
 }
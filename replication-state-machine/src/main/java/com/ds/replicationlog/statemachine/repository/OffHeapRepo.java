@@ -0,0 +1,197 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only log keeping payloads off heap, as {@code [int length][UTF-8 bytes]} records in direct buffer blocks which
+ * count against {@code -XX:MaxDirectMemorySize}; only a {@code long} position per element is kept on heap.
+ * <p>
+ * Concurrency follows {@link ChunkedArrayRepo}. A released block is freed by the garbage collector once no reader holds
+ * it, so a reader which finds a released block or chunk restarts and never touches freed memory.
+ */
+public class OffHeapRepo implements TruncatableRepository {
+    public static final int DEFAULT_BLOCK_SIZE = 16 * 1024 * 1024;
+    private static final int CHUNK_SIZE_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SIZE_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_CHUNKS = 16;
+    private static final int INITIAL_BLOCKS = 4;
+    private static final int LENGTH_SIZE = Integer.BYTES;
+
+    private final int blockSize;
+    private final Object appendLock = new Object();
+    private volatile long[][] positions = new long[INITIAL_CHUNKS][];
+    private volatile ByteBuffer[] blocks = new ByteBuffer[INITIAL_BLOCKS];
+    private long writePosition = 0;
+    private volatile long firstSeqNum = 1;
+    private volatile long lastSeqNum = 0;
+
+    public OffHeapRepo() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    public OffHeapRepo(int blockSize) {
+        if (blockSize <= LENGTH_SIZE) {
+            throw new IllegalArgumentException("Block size must exceed " + LENGTH_SIZE + " bytes");
+        }
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public long appendData(String data) {
+        var bytes = requireNonNull(data).getBytes(StandardCharsets.UTF_8);
+        synchronized (appendLock) {
+            var seqNum = lastSeqNum + 1;
+            write(seqNum, bytes);
+            lastSeqNum = seqNum;
+            return seqNum;
+        }
+    }
+
+    @Override
+    public long appendAll(List<String> data) {
+        data.forEach(Objects::requireNonNull);
+        var encoded = new byte[data.size()][];
+        for (var i = 0; i < encoded.length; i++) {
+            encoded[i] = data.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        synchronized (appendLock) {
+            var seqNum = lastSeqNum;
+            for (var bytes : encoded) {
+                write(++seqNum, bytes);
+            }
+            lastSeqNum = seqNum;
+            return seqNum;
+        }
+    }
+
+    private void write(long seqNum, byte[] bytes) {
+        if (bytes.length > blockSize - LENGTH_SIZE) {
+            throw new IllegalArgumentException("Data element of " + bytes.length
+                    + " bytes exceeds off-heap block size");
+        }
+        var offset = (int) (writePosition % blockSize);
+        if (offset + LENGTH_SIZE + bytes.length > blockSize) {
+            writePosition += blockSize - offset;
+            offset = 0;
+        }
+        var block = blockFor((int) (writePosition / blockSize));
+        block.putInt(offset, bytes.length);
+        block.put(offset + LENGTH_SIZE, bytes);
+        chunkFor(seqNum - 1)[(int) ((seqNum - 1) & CHUNK_MASK)] = writePosition;
+        writePosition += LENGTH_SIZE + bytes.length;
+    }
+
+    private ByteBuffer blockFor(int blockIndex) {
+        var currentBlocks = blocks;
+        if (blockIndex >= currentBlocks.length) {
+            currentBlocks = Arrays.copyOf(currentBlocks, Math.max(currentBlocks.length * 2, blockIndex + 1));
+            blocks = currentBlocks;
+        }
+        if (currentBlocks[blockIndex] == null) {
+            currentBlocks[blockIndex] = ByteBuffer.allocateDirect(blockSize);
+        }
+        return currentBlocks[blockIndex];
+    }
+
+    private long[] chunkFor(long index) {
+        var chunkIndex = (int) (index >>> CHUNK_SIZE_BITS);
+        var currentPositions = positions;
+        if (chunkIndex >= currentPositions.length) {
+            currentPositions = Arrays.copyOf(currentPositions, currentPositions.length * 2);
+            positions = currentPositions;
+        }
+        if (currentPositions[chunkIndex] == null) {
+            currentPositions[chunkIndex] = new long[CHUNK_SIZE];
+        }
+        return currentPositions[chunkIndex];
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        var fromIndex = Math.max(fromSeqNum, firstSeqNum) - 1;
+        var toSeqNum = Math.min(lastSeqNum, fromIndex + limit);
+        if (fromIndex >= toSeqNum) {
+            return List.of();
+        }
+        var currentPositions = positions;
+        var currentBlocks = blocks;
+        var result = new DataElement[(int) (toSeqNum - fromIndex)];
+        for (var index = fromIndex; index < toSeqNum; index++) {
+            var chunk = currentPositions[(int) (index >>> CHUNK_SIZE_BITS)];
+            if (chunk == null) {
+                return getDataElements(fromSeqNum, limit);
+            }
+            var position = chunk[(int) (index & CHUNK_MASK)];
+            var block = currentBlocks[(int) (position / blockSize)];
+            if (block == null) {
+                return getDataElements(fromSeqNum, limit);
+            }
+            var offset = (int) (position % blockSize);
+            var bytes = new byte[block.getInt(offset)];
+            block.get(offset + LENGTH_SIZE, bytes);
+            result[(int) (index - fromIndex)] = new DataElement(new String(bytes, StandardCharsets.UTF_8), index + 1);
+        }
+        return Arrays.asList(result);
+    }
+
+    @Override
+    public long getLastSeqNum() {
+        return lastSeqNum;
+    }
+
+    @Override
+    public void truncateBefore(long seqNum) {
+        synchronized (appendLock) {
+            var horizon = Math.min(seqNum, lastSeqNum + 1);
+            if (horizon <= firstSeqNum) {
+                return;
+            }
+            var firstChunk = (int) ((firstSeqNum - 1) >>> CHUNK_SIZE_BITS);
+            var firstBlock = (int) (positionOf(firstSeqNum) / blockSize);
+            var horizonBlock = (int) (positionOf(horizon) / blockSize);
+            firstSeqNum = horizon;
+            var currentPositions = positions;
+            for (var chunkIndex = firstChunk; chunkIndex < (horizon - 1) >>> CHUNK_SIZE_BITS; chunkIndex++) {
+                currentPositions[chunkIndex] = null;
+            }
+            var currentBlocks = blocks;
+            for (var blockIndex = firstBlock; blockIndex < horizonBlock; blockIndex++) {
+                currentBlocks[blockIndex] = null;
+            }
+        }
+    }
+
+    private long positionOf(long seqNum) {
+        if (seqNum > lastSeqNum) {
+            return writePosition;
+        }
+        return positions[(int) ((seqNum - 1) >>> CHUNK_SIZE_BITS)][(int) ((seqNum - 1) & CHUNK_MASK)];
+    }
+
+    @Override
+    public void restartAfter(long seqNum) {
+        synchronized (appendLock) {
+            if (seqNum < lastSeqNum) {
+                throw new IllegalArgumentException("Log cannot be restarted below its last sequence number");
+            }
+            firstSeqNum = seqNum + 1;
+            positions = new long[Math.max(INITIAL_CHUNKS, (int) (seqNum >>> CHUNK_SIZE_BITS) + 1)][];
+            blocks = new ByteBuffer[INITIAL_BLOCKS];
+            writePosition = 0;
+            lastSeqNum = seqNum;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Durable log stored in rolling, fixed-size segment files.
+ * <p>
+ * Records are appended through a {@link FileChannel} and read back from read-only memory-mapped segments. Each
+ * segment is named after the sequence number of its first record, so on startup only the tail segment has to be
+ * scanned to restore the sequence counter; a torn record at the end of the tail is detected by its checksum and
+ * overwritten by the next append. Truncation deletes whole sealed segments, the tail segment is always kept.
+ */
+public class SegmentedFileRepo implements TruncatableRepository, AutoCloseable {
+    public enum FsyncPolicy {
+        EVERY_APPEND,
+        PERIODIC,
+        OS_MANAGED
+    }
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService fsyncExecutor;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Object appendLock = new Object();
+
+    private volatile Segment tail;
+    private volatile long lastSeqNum;
+
+    public SegmentedFileRepo(Path directory, int segmentSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.directory = requireNonNull(directory);
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be greater than record header size");
+        }
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = requireNonNull(fsyncPolicy);
+        if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+            if (!fsyncInterval.isPositive()) {
+                throw new IllegalArgumentException("Fsync interval must be positive");
+            }
+            this.fsyncExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+        } else {
+            this.fsyncExecutor = null;
+        }
+        try {
+            Files.createDirectories(directory);
+            openSegments();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open log in " + directory, e);
+        }
+        if (fsyncExecutor != null) {
+            fsyncExecutor.scheduleWithFixedDelay(this::forceTail, fsyncInterval.toMillis(), fsyncInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void openSegments() throws IOException {
+        List<Long> firstSeqNums;
+        try (var files = Files.list(directory)) {
+            firstSeqNums = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted().collect(Collectors.toList());
+        }
+        if (firstSeqNums.isEmpty()) {
+            tail = Segment.create(segmentPath(1), 1, segmentSize);
+            segments.put(1L, tail);
+            lastSeqNum = 0;
+            return;
+        }
+        for (var i = 0; i < firstSeqNums.size() - 1; i++) {
+            var firstSeqNum = firstSeqNums.get(i);
+            segments.put(firstSeqNum, Segment.openSealed(segmentPath(firstSeqNum), firstSeqNum,
+                    firstSeqNums.get(i + 1) - firstSeqNum));
+        }
+        var tailFirstSeqNum = firstSeqNums.getLast();
+        tail = Segment.openTail(segmentPath(tailFirstSeqNum), tailFirstSeqNum);
+        segments.put(tailFirstSeqNum, tail);
+        lastSeqNum = tailFirstSeqNum + tail.count - 1;
+    }
+
+    private Path segmentPath(long firstSeqNum) {
+        return directory.resolve("%020d%s".formatted(firstSeqNum, SEGMENT_SUFFIX));
+    }
+
+    @Override
+    public long appendData(String data) {
+        return appendAll(List.of(data));
+    }
+
+    @Override
+    public long appendAll(List<String> data) {
+        var payloads = data.stream().map(d -> d.getBytes(StandardCharsets.UTF_8)).toList();
+        for (var payload : payloads) {
+            if (RECORD_HEADER_SIZE + payload.length > segmentSize) {
+                throw new IllegalArgumentException("Data element exceeds log segment size");
+            }
+        }
+        var appendedBytes = 0L;
+        for (var payload : payloads) {
+            appendedBytes += RECORD_HEADER_SIZE + payload.length;
+        }
+        synchronized (appendLock) {
+            var seqNum = lastSeqNum;
+            var startTail = tail;
+            var startCount = startTail.count;
+            var startWritePosition = startTail.writePosition;
+            try {
+                for (var payload : payloads) {
+                    seqNum++;
+                    if (!tail.fits(payload.length)) {
+                        rollSegment(seqNum);
+                    }
+                    tail.append(seqNum, payload);
+                }
+                if (fsyncPolicy == FsyncPolicy.EVERY_APPEND) {
+                    tail.force();
+                }
+            } catch (IOException e) {
+                var failure = new RuntimeException("Failed to append data to log", e);
+                try {
+                    rollBack(startTail, startCount, startWritePosition, appendedBytes);
+                } catch (IOException rollBackException) {
+                    failure.addSuppressed(rollBackException);
+                }
+                throw failure;
+            }
+            lastSeqNum = seqNum;
+            return seqNum;
+        }
+    }
+
+    private void rollSegment(long firstSeqNum) throws IOException {
+        var path = segmentPath(firstSeqNum);
+        var newTail = Segment.create(path, firstSeqNum, segmentSize);
+        try {
+            if (fsyncPolicy != FsyncPolicy.OS_MANAGED) {
+                tail.force();
+            }
+            tail.seal();
+        } catch (IOException e) {
+            newTail.seal();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        segments.put(firstSeqNum, newTail);
+        tail = newTail;
+    }
+
+    /**
+     * Undoes a failed append which started at {@code writePosition} of {@code startTail}: deletes the segments rolled
+     * by it and zeroes the at most {@code appendedBytes} it has written to {@code startTail}, so neither the next
+     * append nor a reopened log sees elements which have not been committed.
+     */
+    private void rollBack(Segment startTail, int count, int writePosition, long appendedBytes) throws IOException {
+        startTail.count = count;
+        startTail.writePosition = writePosition;
+        tail = startTail;
+        for (var rolled : segments.tailMap(startTail.firstSeqNum, false).values()) {
+            segments.remove(rolled.firstSeqNum);
+            rolled.seal();
+            Files.deleteIfExists(segmentPath(rolled.firstSeqNum));
+        }
+        if (startTail.channel == null) {
+            // Sealed by a roll, so reopened for writing
+            tail = Segment.openTail(segmentPath(startTail.firstSeqNum), startTail.firstSeqNum);
+            tail.count = count;
+            tail.writePosition = writePosition;
+            segments.put(startTail.firstSeqNum, tail);
+        }
+        tail.zero(writePosition, appendedBytes);
+        if (fsyncPolicy != FsyncPolicy.OS_MANAGED) {
+            tail.force();
+        }
+    }
+
+    private void forceTail() {
+        try {
+            tail.force();
+        } catch (ClosedChannelException e) {
+            // the segment was sealed concurrently, sealing has already forced it
+        } catch (IOException e) {
+            logger.warn("Failed to fsync log segment", e);
+        }
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        var seqNum = Math.max(fromSeqNum, 1);
+        var toSeqNum = Math.min(lastSeqNum, seqNum + limit - 1);
+        if (seqNum > toSeqNum) {
+            return List.of();
+        }
+        var result = new ArrayList<DataElement>((int) Math.min(toSeqNum - seqNum + 1, Integer.MAX_VALUE));
+        var fromKey = segments.floorKey(seqNum);
+        for (var segment : segments.tailMap(fromKey == null ? segments.firstKey() : fromKey, true).values()) {
+            if (segment.firstSeqNum > toSeqNum) {
+                break;
+            }
+            var offsets = segment.offsets();
+            var segmentLastSeqNum = Math.min(toSeqNum, segment.firstSeqNum + segment.count - 1);
+            for (seqNum = Math.max(seqNum, segment.firstSeqNum); seqNum <= segmentLastSeqNum; seqNum++) {
+                result.add(segment.read(seqNum, offsets));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getLastSeqNum() {
+        return lastSeqNum;
+    }
+
+    @Override
+    public void truncateBefore(long seqNum) {
+        synchronized (appendLock) {
+            try {
+                deleteSegmentsBefore(seqNum);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to truncate log in " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    public void restartAfter(long seqNum) {
+        synchronized (appendLock) {
+            if (seqNum < lastSeqNum) {
+                throw new IllegalArgumentException("Log cannot be restarted below its last sequence number");
+            }
+            try {
+                if (tail.firstSeqNum != seqNum + 1) {
+                    rollSegment(seqNum + 1);
+                }
+                lastSeqNum = seqNum;
+                deleteSegmentsBefore(seqNum + 1);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to restart log in " + directory, e);
+            }
+        }
+    }
+
+    private void deleteSegmentsBefore(long seqNum) throws IOException {
+        for (var firstSeqNum : segments.headMap(tail.firstSeqNum).keySet()) {
+            if (segments.higherKey(firstSeqNum) > seqNum) {
+                break;
+            }
+            segments.remove(firstSeqNum);
+            Files.deleteIfExists(segmentPath(firstSeqNum));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (fsyncExecutor != null) {
+            fsyncExecutor.shutdownNow();
+        }
+        synchronized (appendLock) {
+            try {
+                if (fsyncPolicy != FsyncPolicy.OS_MANAGED) {
+                    tail.force();
+                }
+                tail.seal();
+            } catch (IOException e) {
+                logger.warn("Failed to close log segment", e);
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final long firstSeqNum;
+        private final MappedByteBuffer buffer;
+        private final long expectedCount;
+        private volatile FileChannel channel;
+        private int writePosition;
+        private volatile int count;
+        private volatile int[] offsets;
+
+        private Segment(long firstSeqNum, MappedByteBuffer buffer, FileChannel channel, long expectedCount) {
+            this.firstSeqNum = firstSeqNum;
+            this.buffer = buffer;
+            this.channel = channel;
+            this.expectedCount = expectedCount;
+        }
+
+        private static Segment create(Path path, long firstSeqNum, int segmentSize) throws IOException {
+            var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            channel.write(ByteBuffer.allocate(1), segmentSize - 1);
+            var segment = new Segment(firstSeqNum, channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize),
+                    channel, -1);
+            segment.offsets = new int[64];
+            return segment;
+        }
+
+        private static Segment openSealed(Path path, long firstSeqNum, long count) throws IOException {
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                return new Segment(firstSeqNum, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                        null, count);
+            }
+        }
+
+        private static Segment openTail(Path path, long firstSeqNum) throws IOException {
+            var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            var segment = new Segment(firstSeqNum, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    channel, -1);
+            segment.scan();
+            return segment;
+        }
+
+        private void scan() {
+            var scanned = new int[64];
+            var scannedCount = 0;
+            var position = 0;
+            var crc = new CRC32C();
+            while (position + RECORD_HEADER_SIZE <= buffer.capacity()
+                    && (expectedCount < 0 || scannedCount < expectedCount)) {
+                var length = buffer.getInt(position);
+                if (length < 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()
+                        || buffer.getLong(position + Integer.BYTES) != firstSeqNum + scannedCount) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(position + RECORD_HEADER_SIZE, length));
+                if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES + Long.BYTES)) {
+                    break;
+                }
+                if (scannedCount == scanned.length) {
+                    scanned = Arrays.copyOf(scanned, scanned.length * 2);
+                }
+                scanned[scannedCount++] = position;
+                position += RECORD_HEADER_SIZE + length;
+            }
+            writePosition = position;
+            count = scannedCount;
+            offsets = expectedCount < 0 ? scanned : Arrays.copyOf(scanned, scannedCount);
+        }
+
+        private int[] offsets() {
+            var current = offsets;
+            if (current == null) {
+                synchronized (this) {
+                    if (offsets == null) {
+                        scan();
+                    }
+                    current = offsets;
+                }
+            }
+            return current;
+        }
+
+        private boolean fits(int payloadLength) {
+            return writePosition + RECORD_HEADER_SIZE + payloadLength <= buffer.capacity();
+        }
+
+        private void append(long seqNum, byte[] payload) throws IOException {
+            var crc = new CRC32C();
+            crc.update(payload);
+            var record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+                    .putInt(payload.length)
+                    .putLong(seqNum)
+                    .putInt((int) crc.getValue())
+                    .put(payload)
+                    .flip();
+            var position = writePosition;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+            var current = offsets;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[count] = writePosition;
+            offsets = current;
+            count = count + 1;
+            writePosition = position;
+        }
+
+        private void zero(int position, long length) throws IOException {
+            var zeros = ByteBuffer.allocate((int) Math.min(length, buffer.capacity() - position));
+            while (zeros.hasRemaining()) {
+                position += channel.write(zeros, position);
+            }
+        }
+
+        private DataElement read(long seqNum, int[] offsets) {
+            var position = offsets[(int) (seqNum - firstSeqNum)];
+            var payload = new byte[buffer.getInt(position)];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+            return new DataElement(new String(payload, StandardCharsets.UTF_8), seqNum);
+        }
+
+        private void force() throws IOException {
+            var currentChannel = channel;
+            if (currentChannel != null) {
+                currentChannel.force(false);
+            }
+        }
+
+        private void seal() throws IOException {
+            var currentChannel = channel;
+            channel = null;
+            if (currentChannel != null) {
+                offsets = Arrays.copyOf(offsets, count);
+                currentChannel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.SnapshotRepository;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Moves all but the last {@code retainedElements} of the wrapped log to an append-only snapshot file of checksummed
+ * {@link BinaryDataElementCodec} frames every {@code snapshotInterval}.
+ * <p>
+ * Frames are forced before the log is truncated, so the snapshot and the log always meet, and a reader which finds the
+ * log truncated under it retries from the snapshot. A torn frame at the end of the file is cut off on startup.
+ */
+public class SnapshottingRepo implements SnapshotRepository, AutoCloseable {
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String INSTALLED_SNAPSHOT_FILE = "snapshot.bin.installing";
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int FRAME_MAX_ELEMENTS = 1024;
+    private static final long FRAME_MAX_BYTES = 1024 * 1024;
+    private static final int SNAPSHOT_PAGE_SIZE = 16 * FRAME_MAX_ELEMENTS;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final TruncatableRepository log;
+    private final Path directory;
+    private final long retainedElements;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final Object snapshotLock = new Object();
+
+    private volatile Snapshot snapshot;
+
+    public SnapshottingRepo(TruncatableRepository log, Path directory, long retainedElements,
+                            Duration snapshotInterval) {
+        this.log = requireNonNull(log);
+        this.directory = requireNonNull(directory);
+        if (retainedElements < 0) {
+            throw new IllegalArgumentException("Retained elements cannot be negative");
+        }
+        this.retainedElements = retainedElements;
+        if (!snapshotInterval.isPositive()) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(directory.resolve(INSTALLED_SNAPSHOT_FILE));
+            snapshot = Snapshot.open(directory.resolve(SNAPSHOT_FILE));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open snapshot in " + directory, e);
+        }
+        if (log.getLastSeqNum() < snapshot.lastSeqNum()) {
+            log.restartAfter(snapshot.lastSeqNum());
+        }
+        this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+        snapshotExecutor.scheduleWithFixedDelay(this::snapshotRetained, snapshotInterval.toMillis(),
+                snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long appendData(String data) {
+        return log.appendData(data);
+    }
+
+    @Override
+    public long appendAll(List<String> data) {
+        return log.appendAll(data);
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        var seqNum = Math.max(fromSeqNum, 1);
+        while (true) {
+            var current = snapshot;
+            var snapshotSeqNum = current.lastSeqNum();
+            if (seqNum > snapshotSeqNum) {
+                var dataElements = log.getDataElements(seqNum, limit);
+                if (startsAt(dataElements, seqNum) || !snapshotMoved(current, snapshotSeqNum)) {
+                    return dataElements;
+                }
+                continue;
+            }
+            var dataElements = readSnapshot(current, seqNum, (int) Math.min(limit, snapshotSeqNum - seqNum + 1));
+            if (dataElements.size() == limit) {
+                return dataElements;
+            }
+            var tail = log.getDataElements(snapshotSeqNum + 1, limit - dataElements.size());
+            if (startsAt(tail, snapshotSeqNum + 1) || !snapshotMoved(current, snapshotSeqNum)) {
+                dataElements.addAll(tail);
+                return dataElements;
+            }
+        }
+    }
+
+    /**
+     * A log page which does not start at the requested sequence number, empty included, was read after the log had
+     * been truncated past it, unless the snapshot did not move since.
+     */
+    private static boolean startsAt(List<DataElement> dataElements, long seqNum) {
+        return !dataElements.isEmpty() && dataElements.getFirst().sequenceNum() == seqNum;
+    }
+
+    private boolean snapshotMoved(Snapshot previous, long previousSeqNum) {
+        var current = snapshot;
+        return current != previous || current.lastSeqNum() != previousSeqNum;
+    }
+
+    private List<DataElement> readSnapshot(Snapshot current, long fromSeqNum, int limit) {
+        try {
+            return current.read(fromSeqNum, limit);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read snapshot in " + directory, e);
+        }
+    }
+
+    @Override
+    public long getLastSeqNum() {
+        return log.getLastSeqNum();
+    }
+
+    @Override
+    public long getSnapshotSeqNum() {
+        return snapshot.lastSeqNum();
+    }
+
+    private void snapshotRetained() {
+        try {
+            snapshot(log.getLastSeqNum() - retainedElements);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to snapshot log", e);
+        }
+    }
+
+    @Override
+    public void snapshot(long seqNum) {
+        synchronized (snapshotLock) {
+            var current = snapshot;
+            var toSeqNum = Math.min(seqNum, log.getLastSeqNum());
+            var fromSeqNum = current.lastSeqNum() + 1;
+            if (fromSeqNum > toSeqNum) {
+                return;
+            }
+            try {
+                while (fromSeqNum <= toSeqNum) {
+                    var page = log.getDataElements(fromSeqNum,
+                            (int) Math.min(SNAPSHOT_PAGE_SIZE, toSeqNum - fromSeqNum + 1));
+                    if (page.isEmpty() || page.getFirst().sequenceNum() != fromSeqNum) {
+                        throw new IllegalStateException("Log does not hold elements from " + fromSeqNum);
+                    }
+                    current.write(page);
+                    fromSeqNum = page.getLast().sequenceNum() + 1;
+                }
+                current.commit();
+            } catch (IOException | RuntimeException e) {
+                current.rollback();
+                throw new RuntimeException("Failed to write snapshot in " + directory, e);
+            }
+            log.truncateBefore(toSeqNum + 1);
+            logger.debug("Snapshotted log up to {}", toSeqNum);
+        }
+    }
+
+    @Override
+    public long transferSnapshot(OutputStream target) throws IOException {
+        return snapshot.transferTo(target);
+    }
+
+    @Override
+    public long installSnapshot(InputStream source) throws IOException {
+        synchronized (snapshotLock) {
+            if (getLastSeqNum() != 0) {
+                throw new IllegalStateException("Snapshot can only be installed into an empty repository");
+            }
+            var installedPath = directory.resolve(INSTALLED_SNAPSHOT_FILE);
+            var size = Files.copy(source, installedPath, StandardCopyOption.REPLACE_EXISTING);
+            var installed = Snapshot.open(installedPath);
+            try {
+                if (installed.size() != size) {
+                    throw new IOException("Snapshot is truncated or corrupted");
+                }
+                installed.force();
+                Files.move(installedPath, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                installed.close();
+                Files.deleteIfExists(installedPath);
+                throw e;
+            }
+            var previous = snapshot;
+            snapshot = installed;
+            previous.close();
+            if (installed.lastSeqNum() > 0) {
+                log.restartAfter(installed.lastSeqNum());
+            }
+            return installed.lastSeqNum();
+        }
+    }
+
+    @Override
+    public void close() {
+        snapshotExecutor.shutdownNow();
+        synchronized (snapshotLock) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close snapshot", e);
+            }
+        }
+        if (log instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.warn("Failed to close log", e);
+            }
+        }
+    }
+
+    private record Frame(long position, int length) {
+    }
+
+    private record Extent(long size, long lastSeqNum) {
+    }
+
+    /**
+     * Readers only look at frames within the published {@link Extent}, so frames written by the snapshotting thread
+     * can be indexed before they are forced and published.
+     */
+    private static final class Snapshot {
+        private final FileChannel channel;
+        private final NavigableMap<Long, Frame> frames = new ConcurrentSkipListMap<>();
+        private volatile Extent extent;
+        private long writePosition;
+        private long writeLastSeqNum;
+
+        private Snapshot(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private static Snapshot open(Path path) throws IOException {
+            var snapshot = new Snapshot(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE));
+            try {
+                snapshot.scan();
+            } catch (IOException e) {
+                snapshot.close();
+                throw e;
+            }
+            return snapshot;
+        }
+
+        private void scan() throws IOException {
+            var size = channel.size();
+            var header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+            var crc = new CRC32C();
+            while (writePosition + FRAME_HEADER_SIZE <= size) {
+                readFully(header.clear(), writePosition);
+                var length = header.getInt(0);
+                var firstSeqNum = header.getLong(2 * Integer.BYTES);
+                var count = header.getInt(2 * Integer.BYTES + Long.BYTES);
+                if (length < 0 || writePosition + FRAME_HEADER_SIZE + length > size
+                        || firstSeqNum != writeLastSeqNum + 1 || count < 1) {
+                    break;
+                }
+                var payload = ByteBuffer.allocate(length);
+                readFully(payload, writePosition + FRAME_HEADER_SIZE);
+                crc.reset();
+                crc.update(payload.flip());
+                if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                    break;
+                }
+                frames.put(firstSeqNum, new Frame(writePosition, length));
+                writePosition += FRAME_HEADER_SIZE + length;
+                writeLastSeqNum += count;
+            }
+            if (writePosition < size) {
+                channel.truncate(writePosition);
+            }
+            extent = new Extent(writePosition, writeLastSeqNum);
+        }
+
+        private long size() {
+            return extent.size();
+        }
+
+        private long lastSeqNum() {
+            return extent.lastSeqNum();
+        }
+
+        private List<DataElement> read(long fromSeqNum, int limit) throws IOException {
+            var toSeqNum = fromSeqNum + limit - 1;
+            var dataElements = new ArrayList<DataElement>();
+            for (var frame : frames.tailMap(frames.floorKey(fromSeqNum), true).entrySet()) {
+                if (frame.getKey() > toSeqNum) {
+                    break;
+                }
+                var payload = ByteBuffer.allocate(frame.getValue().length());
+                readFully(payload, frame.getValue().position() + FRAME_HEADER_SIZE);
+                for (var dataElement : BinaryDataElementCodec.decode(payload.flip())) {
+                    if (dataElement.sequenceNum() >= fromSeqNum && dataElement.sequenceNum() <= toSeqNum) {
+                        dataElements.add(dataElement);
+                    }
+                }
+            }
+            return dataElements;
+        }
+
+        private void readFully(ByteBuffer target, long position) throws IOException {
+            while (target.hasRemaining()) {
+                var read = channel.read(target, position + target.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of snapshot");
+                }
+            }
+        }
+
+        private void write(List<DataElement> dataElements) throws IOException {
+            var from = 0;
+            while (from < dataElements.size()) {
+                var to = from + 1;
+                var bytes = BinaryDataElementCodec.utf8Length(dataElements.get(from).data());
+                while (to < dataElements.size() && to - from < FRAME_MAX_ELEMENTS && bytes < FRAME_MAX_BYTES) {
+                    bytes += BinaryDataElementCodec.utf8Length(dataElements.get(to++).data());
+                }
+                writeFrame(dataElements.subList(from, to));
+                from = to;
+            }
+        }
+
+        private void writeFrame(List<DataElement> dataElements) throws IOException {
+            var buffer = ByteBuffer.allocate(FRAME_HEADER_SIZE + BinaryDataElementCodec.maxEncodedLength(dataElements));
+            BinaryDataElementCodec.encode(dataElements, buffer.position(FRAME_HEADER_SIZE));
+            var length = buffer.position() - FRAME_HEADER_SIZE;
+            var crc = new CRC32C();
+            crc.update(buffer.array(), FRAME_HEADER_SIZE, length);
+            var firstSeqNum = dataElements.getFirst().sequenceNum();
+            buffer.putInt(0, length)
+                    .putInt(Integer.BYTES, (int) crc.getValue())
+                    .putLong(2 * Integer.BYTES, firstSeqNum)
+                    .putInt(2 * Integer.BYTES + Long.BYTES, dataElements.size())
+                    .flip();
+            var position = writePosition;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            frames.put(firstSeqNum, new Frame(writePosition, length));
+            writePosition = position;
+            writeLastSeqNum = dataElements.getLast().sequenceNum();
+        }
+
+        private void commit() throws IOException {
+            channel.force(false);
+            extent = new Extent(writePosition, writeLastSeqNum);
+        }
+
+        private void rollback() {
+            var current = extent;
+            frames.tailMap(current.lastSeqNum(), false).clear();
+            writePosition = current.size();
+            writeLastSeqNum = current.lastSeqNum();
+        }
+
+        private long transferTo(OutputStream target) throws IOException {
+            var current = extent;
+            var targetChannel = Channels.newChannel(target);
+            var position = 0L;
+            while (position < current.size()) {
+                position += channel.transferTo(position, current.size() - position, targetChannel);
+            }
+            return current.lastSeqNum();
+        }
+
+        private void force() throws IOException {
+            channel.force(false);
+        }
+
+        private void close() throws IOException {
+            channel.close();
+        }
+    }
+}
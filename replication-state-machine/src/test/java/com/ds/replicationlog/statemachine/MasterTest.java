@@ -1,20 +1,43 @@
 package com.ds.replicationlog.statemachine;
 
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -25,6 +48,19 @@ public class MasterTest {
     private DataRepository repository;
     @Mock
     private SlavesClient slavesClient;
+    private Master master;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(slavesClient.appendData(any())).thenReturn(CompletableFuture.completedFuture(null));
+        master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+        master.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        master.stop();
+    }
 
     @Test
     public void constructionForNullRepoFails() {
@@ -47,66 +83,133 @@ public class MasterTest {
         assertThrows(NullPointerException.class, () -> new Master(repository, minAcknowledgmentsWaitTime, null));
     }
 
+    @Test
+    public void constructionForNegativeGroupCommitWindowFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Master(repository, minAcknowledgmentsWaitTime,
+                slavesClient, Duration.ofMillis(-1), 10));
+    }
+
+    @Test
+    public void constructionForNonPositiveGroupCommitMaxBatchSizeFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Master(repository, minAcknowledgmentsWaitTime,
+                slavesClient, Duration.ZERO, 0));
+    }
+
+    @Test
+    public void constructionForNullMetricsFails() {
+        assertThrows(NullPointerException.class, () -> new Master(repository, minAcknowledgmentsWaitTime,
+                slavesClient, Duration.ZERO, 10, null));
+    }
+
     @Test
     public void getDataReturnsSavedItems() {
         var fromSeqNum = 5L;
-        when(repository.getDataElements(fromSeqNum)).thenReturn(List.of(new DataElement("data", 1)));
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+        when(repository.getLastSeqNum()).thenReturn(5L);
+        when(repository.getDataElements(fromSeqNum)).thenReturn(List.of(new DataElement("data", 5)));
+        var restoredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
 
-        var result = master.getData(fromSeqNum);
+        var result = restoredMaster.getData(fromSeqNum);
 
-        assertEquals(List.of(new DataElement("data", 1)), result);
+        assertEquals(List.of(new DataElement("data", 5)), result);
         verify(slavesClient, never()).appendData(any());
     }
 
     @Test
-    public void appendDataForNegativeMinAcknowledgmentsFails() {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+    public void getDataOmitsElementsWhichAreNotCommittedYet() {
+        var dataElements = List.of(new DataElement("data1", 1), new DataElement("data2", 2),
+                new DataElement("data3", 3));
+        when(repository.getLastSeqNum()).thenReturn(2L);
+        when(repository.getDataElements(1)).thenReturn(dataElements);
+        when(repository.getDataElements(1, 3)).thenReturn(dataElements);
+        when(repository.iterate(1)).thenReturn(dataElements.iterator());
+        var restoredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+
+        assertEquals(dataElements.subList(0, 2), restoredMaster.getData(1));
+        assertEquals(dataElements.subList(0, 2), restoredMaster.getData(1, 3, 1_024));
+        var iterated = new ArrayList<DataElement>();
+        restoredMaster.iterateData(1).forEachRemaining(iterated::add);
+        assertEquals(dataElements.subList(0, 2), iterated);
+    }
+
+    @Test
+    public void iterateDataIteratesRepository() {
+        when(repository.getLastSeqNum()).thenReturn(5L);
+        when(repository.iterate(5)).thenReturn(List.of(new DataElement("data", 5)).iterator());
+        var restoredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
 
+        var iterator = restoredMaster.iterateData(5);
+
+        assertEquals(new DataElement("data", 5), iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void getDataPageIsLimitedByMaxBytes() {
+        var page = List.of(new DataElement("data1", 1), new DataElement("data2", 2), new DataElement("data3", 3));
+        when(repository.getLastSeqNum()).thenReturn(3L);
+        when(repository.getDataElements(1, 3)).thenReturn(page);
+        var restoredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+
+        assertEquals(page.subList(0, 2), restoredMaster.getData(1, 3, 10));
+        assertEquals(page, restoredMaster.getData(1, 3, 15));
+    }
+
+    @Test
+    public void getDataPageAlwaysContainsFirstElement() {
+        var page = List.of(new DataElement("\u00e9l\u00e9ment", 1), new DataElement("data2", 2));
+        when(repository.getLastSeqNum()).thenReturn(2L);
+        when(repository.getDataElements(1, 2)).thenReturn(page);
+        var restoredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+
+        assertEquals(page.subList(0, 1), restoredMaster.getData(1, 2, 1));
+    }
+
+    @Test
+    public void getDataPageForNonPositiveMaxBytesFails() {
+        assertThrows(IllegalArgumentException.class, () -> master.getData(1, 2, 0));
+    }
+
+    @Test
+    public void appendDataForNegativeMinAcknowledgmentsFails() {
         assertThrows(IllegalArgumentException.class, () -> master.appendData(-1, "data"));
     }
 
     @Test
     public void appendDataForNullDataFails() {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
-
         assertThrows(NullPointerException.class, () -> master.appendData(0, null));
     }
 
     @Test
     public void appendDataForForZeroMinAcknowledgmentsDoesNotWaitForAcknowledgments() throws InterruptedException,
             TimeoutException {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
         var data = "data";
         var seqNum = 1L;
-        when(repository.appendData(data)).thenReturn(seqNum);
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
 
         master.appendData(0, data);
 
-        verify(slavesClient).appendData(new DataElement(data, seqNum));
+        verify(slavesClient, timeout(1_000)).appendData(List.of(new DataElement(data, seqNum)));
     }
 
     @Test
     public void appendDataIgnoresUnknownAcknowledgments() throws InterruptedException, TimeoutException {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
         var data = "data";
         var seqNum = 1L;
-        when(repository.appendData(data)).thenReturn(seqNum);
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
         master.appendData(0, data);
 
         master.acknowledgeReception(new Acknowledgement("r1", seqNum));
 
-        verify(slavesClient).appendData(new DataElement(data, seqNum));
+        verify(slavesClient, timeout(1_000)).appendData(List.of(new DataElement(data, seqNum)));
     }
 
     @Test
     public void appendDataIgnoresAcknowledgmentDuplicates() throws InterruptedException, TimeoutException {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
         var data = "data";
         var seqNum = 2L;
         var replicaId1 = "r1";
         var replicaId2 = "r2";
-        when(repository.appendData(data)).thenReturn(seqNum);
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
         Thread.startVirtualThread(() -> {
             //noinspection CatchMayIgnoreException
             try {
@@ -127,16 +230,15 @@ public class MasterTest {
         master.appendData(2, data);
 
         assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toSeconds() >= 2);
-        verify(slavesClient).appendData(new DataElement(data, seqNum));
+        verify(slavesClient).appendData(List.of(new DataElement(data, seqNum)));
     }
 
     @Test
     public void appendDataIfAcknowledgmentsAreNotReceivedInTimeInterrupts() {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
         var data = "data";
         var seqNum = 2L;
         var replicaId1 = "r1";
-        when(repository.appendData(data)).thenReturn(seqNum);
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
         Thread.startVirtualThread(() -> {
             //noinspection CatchMayIgnoreException
             try {
@@ -149,17 +251,383 @@ public class MasterTest {
 
         assertThrows(TimeoutException.class, () -> master.appendData(2, data));
 
-        verify(slavesClient).appendData(new DataElement(data, seqNum));
+        verify(slavesClient).appendData(List.of(new DataElement(data, seqNum)));
+    }
+
+    @Test
+    public void appendDataWaitsForCommitAndAcknowledgmentsWithinOneTimeout() {
+        var impatientMaster = new Master(repository, Duration.ofSeconds(1), slavesClient);
+        impatientMaster.start();
+        when(repository.appendAll(List.of("data"))).thenAnswer(invocation -> {
+            Thread.sleep(800);
+            return 1L;
+        });
+
+        var startNano = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> impatientMaster.appendData(1, "data"));
+
+        impatientMaster.stop();
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() < 1_500);
     }
 
     @Test
     public void appendDataForFailedReplicasUpdateFailsBecauseOfTimeout() {
-        var master = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
         var data = "data";
         var seqNum = 2L;
-        when(repository.appendData(data)).thenReturn(seqNum);
-        doThrow(new RuntimeException("test")).when(slavesClient).appendData(new DataElement(data, seqNum));
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
+        doThrow(new RuntimeException("test")).when(slavesClient).appendData(List.of(new DataElement(data, seqNum)));
 
         assertThrows(TimeoutException.class, () -> master.appendData(2, data));
     }
+
+    @Test
+    public void appendDataForFailedAsynchronousReplicasUpdateFailsBecauseOfTimeout() {
+        var data = "data";
+        var seqNum = 2L;
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
+        when(slavesClient.appendData(List.of(new DataElement(data, seqNum))))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("test")));
+
+        assertThrows(TimeoutException.class, () -> master.appendData(2, data));
+    }
+
+    @Test
+    public void appendDataWaitsOnlyForAcknowledgmentsAndNotForSlowReplicas() throws InterruptedException,
+            TimeoutException {
+        var data = "data";
+        var seqNum = 1L;
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
+        when(slavesClient.appendData(List.of(new DataElement(data, seqNum)))).thenAnswer(invocation -> {
+            master.acknowledgeReception(new Acknowledgement("r1", seqNum));
+            return new CompletableFuture<Void>();
+        });
+
+        var startNano = System.nanoTime();
+        master.appendData(1, data);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() < 1_000);
+    }
+
+    @Test
+    public void appendDataAsyncCompletesWithSeqNumOnceAcknowledged() throws Exception {
+        var data = "data";
+        var seqNum = 2L;
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
+        when(slavesClient.appendData(List.of(new DataElement(data, seqNum)))).thenAnswer(invocation -> {
+            Thread.startVirtualThread(() -> master.acknowledgeReception(new Acknowledgement("r1", seqNum)));
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(seqNum, master.appendDataAsync(1, data).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void appendDataAsyncForZeroMinAcknowledgmentsCompletesOnCommit() throws Exception {
+        var data = "data";
+        when(repository.appendAll(List.of(data))).thenReturn(1L);
+
+        assertEquals(1L, master.appendDataAsync(0, data).get(1, TimeUnit.SECONDS));
+        verify(slavesClient).appendData(List.of(new DataElement(data, 1)));
+    }
+
+    @Test
+    public void appendDataAsyncIfAcknowledgmentsAreNotReceivedInTimeFails() {
+        var impatientMaster = new Master(repository, Duration.ofMillis(100), slavesClient);
+        impatientMaster.start();
+        when(repository.appendAll(List.of("data"))).thenReturn(1L);
+
+        var exception = assertThrows(ExecutionException.class, () -> impatientMaster.appendDataAsync(1, "data")
+                .get(1, TimeUnit.SECONDS));
+
+        impatientMaster.stop();
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+    }
+
+    @Test
+    public void appendDataAsyncForNegativeMinAcknowledgmentsFails() {
+        assertThrows(IllegalArgumentException.class, () -> master.appendDataAsync(-1, "data"));
+    }
+
+    @Test
+    public void appendAllAsyncAssignsContiguousRangeAcknowledgedByItsLastElement() throws Exception {
+        var rangeMaster = new Master(new ChunkedArrayRepo(), minAcknowledgmentsWaitTime, slavesClient);
+        rangeMaster.start();
+        rangeMaster.appendData(0, "data0");
+
+        var appended = rangeMaster.appendAllAsync(1, List.of("data1", "data2", "data3"));
+
+        verify(slavesClient, timeout(1_000)).appendData(List.of(new DataElement("data1", 2),
+                new DataElement("data2", 3), new DataElement("data3", 4)));
+        rangeMaster.acknowledgeReception(new Acknowledgement("r1", 3));
+        assertFalse(appended.isDone());
+        rangeMaster.acknowledgeReception(new Acknowledgement("r1", 4));
+        assertEquals(new SeqNumRange(2, 4), appended.get(1, TimeUnit.SECONDS));
+        rangeMaster.stop();
+    }
+
+    @Test
+    public void appendAllAsyncForEmptyBatchFails() {
+        assertThrows(IllegalArgumentException.class, () -> master.appendAllAsync(0, List.of()));
+    }
+
+    @Test
+    public void appendAllAsyncForNullDataFails() {
+        assertThrows(NullPointerException.class, () -> master.appendAllAsync(0, Arrays.asList("data", null)));
+    }
+
+    @Test
+    public void appendDataRetriedWithRequestIdIsAppendedOnceAndAwaitsAcknowledgementsAgain() throws Exception {
+        var impatientMaster = new Master(repository, Duration.ofMillis(100), slavesClient);
+        impatientMaster.start();
+        when(repository.appendAll(List.of("data"))).thenReturn(1L);
+
+        assertThrows(TimeoutException.class, () -> impatientMaster.appendData(1, "data", "id1"));
+        assertThrows(TimeoutException.class, () -> impatientMaster.appendData(1, "data", "id1"));
+        impatientMaster.acknowledgeReception(new Acknowledgement("r1", 1));
+        assertDoesNotThrow(() -> impatientMaster.appendData(1, "data", "id1"));
+
+        impatientMaster.stop();
+        verify(repository).appendAll(List.of("data"));
+        verify(slavesClient).appendData(List.of(new DataElement("data", 1)));
+    }
+
+    @Test
+    public void appendDataAsyncRetriedWithRequestIdCompletesWithOriginalSeqNum() throws Exception {
+        var idempotentMaster = new Master(new ChunkedArrayRepo(), minAcknowledgmentsWaitTime, slavesClient);
+        idempotentMaster.start();
+
+        assertEquals(1L, idempotentMaster.appendDataAsync(0, "data1", "id1").get(1, TimeUnit.SECONDS));
+        assertEquals(2L, idempotentMaster.appendDataAsync(0, "data2", "id2").get(1, TimeUnit.SECONDS));
+        assertEquals(1L, idempotentMaster.appendDataAsync(0, "data1", "id1").get(1, TimeUnit.SECONDS));
+        assertEquals(new SeqNumRange(3, 4), idempotentMaster.appendAllAsync(0, List.of("data3", "data4"), "id3")
+                .get(1, TimeUnit.SECONDS));
+        assertEquals(new SeqNumRange(3, 4), idempotentMaster.appendAllAsync(0, List.of("data3"), "id3")
+                .get(1, TimeUnit.SECONDS));
+
+        assertEquals(5L, idempotentMaster.appendDataAsync(0, "data5").get(1, TimeUnit.SECONDS));
+        idempotentMaster.stop();
+    }
+
+    @Test
+    public void appendDataRetriedWithRequestIdAfterFailedAppendIsAppendedAgain() throws Exception {
+        when(repository.appendAll(List.of("data"))).thenThrow(new RuntimeException("test")).thenReturn(1L);
+
+        assertThrows(RuntimeException.class, () -> master.appendData(0, "data", "id1"));
+        master.appendData(0, "data", "id1");
+
+        verify(repository, timeout(1_000).times(2)).appendAll(List.of("data"));
+        verify(slavesClient).appendData(List.of(new DataElement("data", 1)));
+    }
+
+    @Test
+    public void awaitReplicationCountsReplicasWhichAcknowledgedSeqNum() throws Exception {
+        master.acknowledgeReception(new Acknowledgement("r1", 3));
+        master.acknowledgeReception(new Acknowledgement("r2", 1));
+
+        assertEquals(1, master.awaitReplication(2, 2, Duration.ZERO).get());
+
+        var status = master.awaitReplication(2, 2, Duration.ofSeconds(1));
+        master.acknowledgeReception(new Acknowledgement("r2", 2));
+        assertEquals(2, status.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void acknowledgementBelowWatermarkOfRestartedReplicaLowersIt() throws Exception {
+        master.acknowledgeReception(new Acknowledgement("r1", 3));
+
+        master.acknowledgeReception(new Acknowledgement("r1", 1));
+
+        assertEquals(0, master.awaitReplication(3, 1, Duration.ZERO).get());
+        assertEquals(1, master.awaitReplication(1, 1, Duration.ZERO).get());
+    }
+
+    @Test
+    public void replicaLaggingWithoutAcknowledgementsForExpiryIsForgotten() throws Exception {
+        var metrics = mock(MasterMetrics.class);
+        var expiringMaster = new Master(new ChunkedArrayRepo(), Duration.ofMillis(100), slavesClient, Duration.ZERO,
+                10, metrics, 100, Duration.ofMinutes(1), Duration.ofMillis(200));
+        expiringMaster.start();
+        expiringMaster.appendData(0, "data1");
+        expiringMaster.acknowledgeReception(new Acknowledgement("r1", 1));
+        expiringMaster.acknowledgeReception(new Acknowledgement("r2", 1));
+        Thread.sleep(300);
+        expiringMaster.acknowledgeReception(new Acknowledgement("r2", 1));
+
+        expiringMaster.appendData(0, "data2");
+        expiringMaster.stop();
+
+        verify(metrics).replicaExpired("r1");
+        verify(metrics, never()).replicaExpired("r2");
+        assertEquals(1, expiringMaster.awaitReplication(1, 2, Duration.ZERO).get());
+    }
+
+    @Test
+    public void constructionForReplicaExpiryNotExceedingAcknowledgmentsWaitTimeFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Master(repository, minAcknowledgmentsWaitTime,
+                slavesClient, Duration.ZERO, 10, MasterMetrics.NONE, 100, Duration.ofMinutes(1),
+                minAcknowledgmentsWaitTime));
+    }
+
+    @Test
+    public void awaitReplicationReturnsReachedCountOnceWaitElapses() throws Exception {
+        master.acknowledgeReception(new Acknowledgement("r1", 3));
+
+        var startNano = System.nanoTime();
+        assertEquals(1, master.awaitReplication(3, 2, Duration.ofMillis(200)).get(1, TimeUnit.SECONDS));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() >= 200);
+    }
+
+    @Test
+    public void appendDataForFailedRepositoryAppendFails() {
+        var data = "data";
+        when(repository.appendAll(List.of(data))).thenThrow(new RuntimeException("test"));
+
+        assertThrows(RuntimeException.class, () -> master.appendData(0, data));
+
+        verify(slavesClient, never()).appendData(any());
+    }
+
+    @Test
+    public void appendDataOfNotStartedMasterFailsBecauseOfTimeout() {
+        var notStartedMaster = new Master(repository, Duration.ofMillis(100), slavesClient);
+
+        assertThrows(TimeoutException.class, () -> notStartedMaster.appendData(0, "data"));
+    }
+
+    @Test
+    public void concurrentAppendsAreCommittedAndReplicatedInBatches() throws InterruptedException {
+        var batches = new CopyOnWriteArrayList<List<DataElement>>();
+        var groupCommitMaster = new Master(new ChunkedArrayRepo(), minAcknowledgmentsWaitTime, dataElements -> {
+            batches.add(dataElements);
+            return CompletableFuture.completedFuture(null);
+        }, Duration.ofMillis(200), 100);
+        groupCommitMaster.start();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < 100; i++) {
+                var data = "data" + i;
+                executor.submit(() -> {
+                    groupCommitMaster.appendData(0, data);
+                    return null;
+                });
+            }
+        }
+        groupCommitMaster.stop();
+        Thread.sleep(500);
+
+        var replicated = batches.stream().flatMap(List::stream).toList();
+        assertTrue(batches.size() < 100);
+        assertEquals(groupCommitMaster.getData(1), replicated.stream()
+                .sorted(Comparator.comparingLong(DataElement::sequenceNum)).toList());
+        assertEquals(100, replicated.size());
+    }
+
+    @Test
+    public void cumulativeAcknowledgementReleasesEveryPendingAppendUpToIt() throws InterruptedException {
+        var masterReference = new AtomicReference<Master>();
+        var cumulativeMaster = new Master(new ChunkedArrayRepo(), minAcknowledgmentsWaitTime, dataElements -> {
+            if (dataElements.getLast().sequenceNum() == 2) {
+                Thread.startVirtualThread(() -> masterReference.get()
+                        .acknowledgeReception(new Acknowledgement("r1", 2)));
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+        masterReference.set(cumulativeMaster);
+        cumulativeMaster.start();
+        var startNano = System.nanoTime();
+        var first = Thread.startVirtualThread(() -> assertDoesNotThrow(() -> cumulativeMaster.appendData(1, "data1")));
+        Thread.sleep(200);
+
+        assertTrue(first.isAlive());
+        assertDoesNotThrow(() -> cumulativeMaster.appendData(1, "data2"));
+        first.join();
+        cumulativeMaster.stop();
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() < 1_000);
+    }
+
+    @Test
+    public void appendDataReportsMetrics() throws InterruptedException, TimeoutException {
+        var metrics = mock(MasterMetrics.class);
+        var measuredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient, Duration.ZERO, 10,
+                metrics);
+        measuredMaster.start();
+        var data = "data";
+        var seqNum = 1L;
+        when(repository.appendAll(List.of(data))).thenReturn(seqNum);
+        Thread.startVirtualThread(() -> {
+            verify(slavesClient, timeout(1_000)).appendData(List.of(new DataElement(data, seqNum)));
+            measuredMaster.acknowledgeReception(new Acknowledgement("r1", seqNum));
+            measuredMaster.acknowledgeReception(new Acknowledgement("r1", seqNum));
+        });
+
+        measuredMaster.appendData(1, data);
+        measuredMaster.stop();
+
+        verify(metrics).repositoryAppended(eq(1), anyLong());
+        verify(metrics).replicasUpdated(eq(1), anyLong(), eq(true));
+        verify(metrics).acknowledgementsAwaited(eq(1), anyLong(), eq(true));
+        verify(metrics, timeout(1_000)).replicaAcknowledged("r1", seqNum);
+    }
+
+    @Test
+    public void transferSnapshotWritesRepositorySnapshot() throws IOException {
+        var snapshotRepository = mock(SnapshotRepository.class);
+        var snapshotMaster = new Master(snapshotRepository, minAcknowledgmentsWaitTime, slavesClient);
+        var target = new ByteArrayOutputStream();
+        when(snapshotRepository.transferSnapshot(target)).thenReturn(5L);
+
+        assertEquals(5, snapshotMaster.transferSnapshot(target));
+    }
+
+    @Test
+    public void transferSnapshotWithoutSnapshotRepositoryWritesNothing() throws IOException {
+        var target = new ByteArrayOutputStream();
+
+        assertEquals(0, master.transferSnapshot(target));
+        assertEquals(0, target.size());
+    }
+
+    @Test
+    public void awaitDataForNegativeWaitFails() {
+        assertThrows(IllegalArgumentException.class, () -> master.awaitData(1, 10, 1_024, Duration.ofMillis(-1)));
+    }
+
+    @Test
+    public void awaitDataReturnsCommittedDataImmediately() throws InterruptedException {
+        var dataElements = List.of(new DataElement("data", 1), new DataElement("data", 2));
+        when(repository.getLastSeqNum()).thenReturn(2L);
+        when(repository.getDataElements(1, 2)).thenReturn(dataElements);
+        var restoredMaster = new Master(repository, minAcknowledgmentsWaitTime, slavesClient);
+
+        assertEquals(dataElements, restoredMaster.awaitData(1, 10, 1_024, Duration.ofSeconds(3)));
+    }
+
+    @Test
+    public void awaitDataWaitsForNextCommit() throws InterruptedException {
+        var pollingMaster = new Master(new ChunkedArrayRepo(), minAcknowledgmentsWaitTime, slavesClient);
+        pollingMaster.start();
+        Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(200);
+                pollingMaster.appendData(0, "data");
+            } catch (InterruptedException | TimeoutException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        var startNano = System.nanoTime();
+
+        var result = pollingMaster.awaitData(1, 10, 1_024, Duration.ofSeconds(3));
+        pollingMaster.stop();
+
+        assertEquals(List.of(new DataElement("data", 1)), result);
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() < 1_000);
+    }
+
+    @Test
+    public void awaitDataWithoutCommitReturnsNothingAfterWait() throws InterruptedException {
+        var startNano = System.nanoTime();
+
+        assertEquals(List.of(), master.awaitData(1, 10, 1_024, Duration.ofMillis(200)));
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() >= 200);
+    }
 }
@@ -0,0 +1,60 @@
+package com.ds.replicationlog.statemachine;
+
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PagedCursorTest {
+
+    @Test
+    public void cursorReadsElementsAcrossPages() {
+        var repository = new ChunkedArrayRepo();
+        for (var i = 1; i <= 3_000; i++) {
+            repository.appendData("data" + i);
+        }
+
+        var result = new ArrayList<DataElement>();
+        new PagedCursor(repository, 10, repository.getLastSeqNum()).forEachRemaining(result::add);
+
+        assertEquals(repository.getDataElements(10), result);
+    }
+
+    @Test
+    public void cursorStopsAtToSeqNum() {
+        var repository = new ChunkedArrayRepo();
+        repository.appendAll(List.of("data1", "data2", "data3"));
+
+        var cursor = new PagedCursor(repository, 1, 2);
+        repository.appendData("data4");
+
+        assertEquals(new DataElement("data1", 1), cursor.next());
+        assertEquals(new DataElement("data2", 2), cursor.next());
+        assertFalse(cursor.hasNext());
+        assertThrows(NoSuchElementException.class, cursor::next);
+    }
+
+    @Test
+    public void cursorSkipsElementsTruncatedWhileIterating() {
+        var repository = new ChunkedArrayRepo();
+        for (var i = 1; i <= 3_000; i++) {
+            repository.appendData("data" + i);
+        }
+        var cursor = new PagedCursor(repository, 1, 2_500);
+
+        assertEquals(new DataElement("data1", 1), cursor.next());
+        repository.truncateBefore(2_000);
+        var result = new ArrayList<DataElement>();
+        cursor.forEachRemaining(result::add);
+
+        assertEquals(PagedCursor.PAGE_SIZE - 1 + 501, result.size());
+        assertEquals(new DataElement("data2000", 2_000), result.get(PagedCursor.PAGE_SIZE - 1));
+        assertEquals(new DataElement("data2500", 2_500), result.getLast());
+    }
+}
@@ -0,0 +1,159 @@
+package com.ds.replicationlog.statemachine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PendingAcknowledgementsTest {
+    private static final long TIMEOUT_NANOS = Duration.ofSeconds(5).toNanos();
+
+    @Test
+    public void constructionForNonPowerOfTwoCapacityFails() {
+        assertThrows(IllegalArgumentException.class, () -> new PendingAcknowledgements(3));
+    }
+
+    @Test
+    public void registerForNonPositiveRequiredAcknowledgementsFails() {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+
+        assertThrows(IllegalArgumentException.class, () -> pendingAcknowledgements.register(1, 0,
+                Thread.currentThread()));
+    }
+
+    @Test
+    public void awaitReturnsOnceRequiredAcknowledgementsArrive() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        pendingAcknowledgements.register(1, 2, Thread.currentThread());
+        Thread.startVirtualThread(() -> {
+            pendingAcknowledgements.acknowledge(0, 1);
+            pendingAcknowledgements.acknowledge(0, 1);
+        });
+
+        assertTrue(pendingAcknowledgements.await(1, TIMEOUT_NANOS));
+    }
+
+    @Test
+    public void acknowledgementCompletesFutureWaiter() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        var acknowledged = new CompletableFuture<Void>();
+        pendingAcknowledgements.register(1, 2, acknowledged);
+
+        pendingAcknowledgements.acknowledge(0, 1);
+        assertFalse(acknowledged.isDone());
+        pendingAcknowledgements.acknowledge(0, 1);
+
+        assertTrue(acknowledged.isDone());
+    }
+
+    @Test
+    public void awaitWithMissingAcknowledgementsTimesOut() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        pendingAcknowledgements.register(1, 2, Thread.currentThread());
+        pendingAcknowledgements.acknowledge(0, 1);
+
+        assertFalse(pendingAcknowledgements.await(1, Duration.ofMillis(50).toNanos()));
+    }
+
+    @Test
+    public void acknowledgeCountsOnlySequenceNumsWithinRange() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        pendingAcknowledgements.register(1, 1, Thread.currentThread());
+        pendingAcknowledgements.register(2, 1, Thread.currentThread());
+
+        pendingAcknowledgements.acknowledge(1, 2);
+
+        assertFalse(pendingAcknowledgements.await(1, 0));
+        assertTrue(pendingAcknowledgements.await(2, 0));
+    }
+
+    @Test
+    public void acknowledgeOfRangeWiderThanCapacityCountsEverySlotOnce() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        pendingAcknowledgements.register(2, 1, Thread.currentThread());
+        pendingAcknowledgements.register(7, 2, Thread.currentThread());
+
+        pendingAcknowledgements.acknowledge(0, 10);
+
+        assertTrue(pendingAcknowledgements.await(2, 0));
+        assertFalse(pendingAcknowledgements.await(7, 0));
+    }
+
+    @Test
+    public void registerForSlotOwnedByOlderSequenceNumFails() {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        pendingAcknowledgements.register(1, 1, Thread.currentThread());
+
+        assertFalse(pendingAcknowledgements.register(5, 1, Thread.currentThread()));
+        assertTrue(pendingAcknowledgements.isRegistered(1));
+        assertFalse(pendingAcknowledgements.isRegistered(5));
+        pendingAcknowledgements.release(1);
+        assertTrue(pendingAcknowledgements.register(5, 1, Thread.currentThread()));
+        assertTrue(pendingAcknowledgements.isRegistered(5));
+    }
+
+    @Test
+    public void acknowledgementOfReleasedSequenceNumKeepsWaiterOfNewOwner() {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        var acknowledged = new CompletableFuture<Void>();
+        pendingAcknowledgements.register(1, 1, new CompletableFuture<Void>());
+        pendingAcknowledgements.release(1);
+        pendingAcknowledgements.register(5, 1, acknowledged);
+
+        pendingAcknowledgements.acknowledge(0, 1);
+
+        assertFalse(acknowledged.isDone());
+    }
+
+    @Test
+    public void releaseOfForeignSequenceNumKeepsSlot() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(4);
+        pendingAcknowledgements.register(5, 1, Thread.currentThread());
+
+        pendingAcknowledgements.release(1);
+        pendingAcknowledgements.acknowledge(4, 5);
+
+        assertTrue(pendingAcknowledgements.await(5, 0));
+    }
+
+    @Test
+    public void concurrentAcknowledgementsReleaseEveryWaiter() throws InterruptedException {
+        var pendingAcknowledgements = new PendingAcknowledgements(1 << 10);
+        var replicas = 3;
+        var count = 20_000;
+        var failed = new AtomicBoolean();
+        var waiters = new Thread[count];
+        for (var i = 0; i < count; i++) {
+            var seqNum = i + 1L;
+            waiters[i] = Thread.ofVirtual().unstarted(() -> {
+                try {
+                    if (!pendingAcknowledgements.await(seqNum, TIMEOUT_NANOS)) {
+                        failed.set(true);
+                    }
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                }
+            });
+            // A slot still owned by a waiter which has not run yet is skipped, as master then counts watermarks
+            if (pendingAcknowledgements.register(seqNum, replicas, waiters[i])) {
+                waiters[i].start();
+            }
+            if (seqNum % 100 == 0) {
+                for (var replica = 0; replica < replicas; replica++) {
+                    Thread.startVirtualThread(() -> pendingAcknowledgements.acknowledge(seqNum - 100, seqNum));
+                }
+            }
+        }
+
+        for (var waiter : waiters) {
+            waiter.join();
+        }
+
+        assertFalse(failed.get());
+    }
+}
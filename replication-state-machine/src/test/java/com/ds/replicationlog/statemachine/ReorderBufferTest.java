@@ -0,0 +1,133 @@
+package com.ds.replicationlog.statemachine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReorderBufferTest {
+    private static final long TIMEOUT_NANOS = Duration.ofSeconds(5).toNanos();
+
+    @Test
+    public void constructionForNonPositiveCapacityFails() {
+        assertThrows(IllegalArgumentException.class, () -> new ReorderBuffer(0, 0));
+    }
+
+    @Test
+    public void offerRefusesAppliedBufferedAndBeyondWindowElements() {
+        var reorderBuffer = new ReorderBuffer(4, 2);
+
+        assertFalse(reorderBuffer.offer(new DataElement("data2", 2)));
+        assertTrue(reorderBuffer.offer(new DataElement("data3", 3)));
+        assertFalse(reorderBuffer.offer(new DataElement("data3", 3)));
+        assertTrue(reorderBuffer.offer(new DataElement("data6", 6)));
+        assertFalse(reorderBuffer.offer(new DataElement("data7", 7)));
+
+        assertEquals(2, reorderBuffer.size());
+    }
+
+    @Test
+    public void awaitContiguousReturnsRunFollowingAppliedElements() throws InterruptedException {
+        var reorderBuffer = new ReorderBuffer(8, 0);
+        reorderBuffer.offer(new DataElement("data2", 2));
+        reorderBuffer.offer(new DataElement("data1", 1));
+        reorderBuffer.offer(new DataElement("data4", 4));
+
+        assertEquals(List.of(new DataElement("data1", 1), new DataElement("data2", 2)),
+                reorderBuffer.awaitContiguous(8, 0, 0));
+        assertEquals(List.of(new DataElement("data1", 1)), reorderBuffer.awaitContiguous(1, 0, 0));
+    }
+
+    @Test
+    public void awaitContiguousReturnsOnceNextElementIsOffered() throws InterruptedException {
+        var reorderBuffer = new ReorderBuffer(4, 0);
+        Thread.startVirtualThread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reorderBuffer.offer(new DataElement("data1", 1));
+        });
+
+        assertEquals(List.of(new DataElement("data1", 1)), reorderBuffer.awaitContiguous(4, TIMEOUT_NANOS,
+                TIMEOUT_NANOS));
+    }
+
+    @Test
+    public void awaitContiguousWithGapWaitsOnlyGapDelay() throws InterruptedException {
+        var reorderBuffer = new ReorderBuffer(4, 0);
+        reorderBuffer.offer(new DataElement("data2", 2));
+
+        var startNano = System.nanoTime();
+        assertTrue(reorderBuffer.awaitContiguous(4, TIMEOUT_NANOS, Duration.ofMillis(50).toNanos()).isEmpty());
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toSeconds() < 1);
+    }
+
+    @Test
+    public void awaitContiguousWithNothingOfferedTimesOut() throws InterruptedException {
+        var reorderBuffer = new ReorderBuffer(4, 0);
+
+        assertTrue(reorderBuffer.awaitContiguous(4, Duration.ofMillis(50).toNanos(), 0).isEmpty());
+    }
+
+    @Test
+    public void gapEndsBeforeFirstBufferedElement() {
+        var reorderBuffer = new ReorderBuffer(8, 2);
+        reorderBuffer.offer(new DataElement("data6", 6));
+        reorderBuffer.offer(new DataElement("data8", 8));
+
+        assertEquals(5, reorderBuffer.gapEnd());
+    }
+
+    @Test
+    public void gapEndsAtHighestRefusedElementWhenNothingIsBuffered() {
+        var reorderBuffer = new ReorderBuffer(2, 2);
+        reorderBuffer.offer(new DataElement("data3", 3));
+        reorderBuffer.offer(new DataElement("data9", 9));
+        reorderBuffer.advanceTo(3);
+
+        assertEquals(9, reorderBuffer.gapEnd());
+    }
+
+    @Test
+    public void gapEndWithoutGapIsAppliedSeqNum() {
+        var reorderBuffer = new ReorderBuffer(4, 2);
+
+        assertEquals(2, reorderBuffer.gapEnd());
+    }
+
+    @Test
+    public void advanceToDropsAppliedElementsAndMovesWindow() throws InterruptedException {
+        var reorderBuffer = new ReorderBuffer(4, 0);
+        reorderBuffer.offer(new DataElement("data1", 1));
+        reorderBuffer.offer(new DataElement("data2", 2));
+        reorderBuffer.offer(new DataElement("data3", 3));
+
+        reorderBuffer.advanceTo(2);
+
+        assertEquals(1, reorderBuffer.size());
+        assertFalse(reorderBuffer.offer(new DataElement("data2", 2)));
+        assertTrue(reorderBuffer.offer(new DataElement("data6", 6)));
+        assertEquals(List.of(new DataElement("data3", 3)), reorderBuffer.awaitContiguous(4, 0, 0));
+    }
+
+    @Test
+    public void advanceToBeyondWindowEmptiesBuffer() {
+        var reorderBuffer = new ReorderBuffer(4, 0);
+        reorderBuffer.offer(new DataElement("data2", 2));
+        reorderBuffer.offer(new DataElement("data4", 4));
+
+        reorderBuffer.advanceTo(100);
+
+        assertEquals(0, reorderBuffer.size());
+        assertEquals(100, reorderBuffer.gapEnd());
+        assertTrue(reorderBuffer.offer(new DataElement("data104", 104)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ds.replicationlog.statemachine;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestIdCacheTest {
+    private static final Duration RETENTION = Duration.ofMinutes(1);
+
+    @Test
+    public void constructionForNonPositiveCapacityFails() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestIdCache(0, RETENTION));
+    }
+
+    @Test
+    public void constructionForNonPositiveRetentionFails() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestIdCache(1, Duration.ZERO));
+    }
+
+    @Test
+    public void registerForNullRequestIdFails() {
+        var requestIds = new RequestIdCache(1, RETENTION);
+
+        assertThrows(NullPointerException.class, () -> requestIds.register(null));
+    }
+
+    @Test
+    public void registerOfKnownRequestIdReturnsItsSeqNumsOnceCommitted() {
+        var requestIds = new RequestIdCache(4, RETENTION);
+
+        assertNull(requestIds.register("id1"));
+        var seqNums = requestIds.register("id1");
+        assertNotNull(seqNums);
+        assertFalse(seqNums.isDone());
+        requestIds.committed("id1", new SeqNumRange(5, 7));
+
+        assertEquals(new SeqNumRange(5, 7), seqNums.join());
+        assertEquals(new SeqNumRange(5, 7), requestIds.register("id1").join());
+    }
+
+    @Test
+    public void failedRequestIdIsForgotten() {
+        var requestIds = new RequestIdCache(4, RETENTION);
+        requestIds.register("id1");
+        var seqNums = requestIds.register("id1");
+
+        requestIds.failed("id1", new RuntimeException("test"));
+
+        assertTrue(seqNums.isCompletedExceptionally());
+        assertNull(requestIds.register("id1"));
+    }
+
+    @Test
+    public void registerBeyondCapacityEvictsOldestRequestId() {
+        var requestIds = new RequestIdCache(2, RETENTION);
+        requestIds.register("id1");
+        requestIds.register("id2");
+
+        requestIds.register("id3");
+
+        assertEquals(2, requestIds.size());
+        assertNotNull(requestIds.register("id2"));
+        assertNull(requestIds.register("id1"));
+    }
+
+    @Test
+    public void registerEvictsRequestIdsOlderThanRetention() throws InterruptedException {
+        var requestIds = new RequestIdCache(4, Duration.ofMillis(50));
+        requestIds.register("id1");
+        Thread.sleep(100);
+
+        assertNull(requestIds.register("id2"));
+
+        assertEquals(1, requestIds.size());
+        assertNull(requestIds.register("id1"));
+    }
+
+    @Test
+    public void committedOfUnknownRequestIdIsIgnored() {
+        var requestIds = new RequestIdCache(1, RETENTION);
+
+        requestIds.committed("id1", new SeqNumRange(1, 1));
+
+        assertEquals(0, requestIds.size());
+    }
+}
@@ -7,15 +7,29 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,6 +37,9 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 public class SlaveTest {
     private static final String REPLICA_ID = "r1";
+    private static final Duration ACKNOWLEDGEMENT_INTERVAL = Duration.ofMillis(5);
+    private static final int PAGE_SIZE = 2;
+    private static final long PAGE_MAX_BYTES = 1_024;
     @Mock
     private MasterClient masterClient;
     @Mock
@@ -31,7 +48,8 @@ public class SlaveTest {
 
     @BeforeEach
     void setUp() {
-        slave = new Slave(repository, masterClient, 100, REPLICA_ID);
+        slave = new Slave(repository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE,
+                PAGE_MAX_BYTES);
     }
 
     @AfterEach
@@ -50,7 +68,7 @@ public class SlaveTest {
     }
 
     @Test
-    public void constructionForNonPositiveQueueCapacityFails() {
+    public void constructionForNonPositiveReorderWindowSizeFails() {
         assertThrows(IllegalArgumentException.class, () -> new Slave(repository, masterClient, 0, REPLICA_ID));
     }
 
@@ -59,6 +77,36 @@ public class SlaveTest {
         assertThrows(NullPointerException.class, () -> new Slave(repository, masterClient, 100, null));
     }
 
+    @Test
+    public void constructionForNegativeAcknowledgementIntervalFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Slave(repository, masterClient, 100, REPLICA_ID,
+                Duration.ofMillis(-1), PAGE_SIZE, PAGE_MAX_BYTES));
+    }
+
+    @Test
+    public void constructionForNonPositiveCatchUpPageSizeFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Slave(repository, masterClient, 100, REPLICA_ID,
+                ACKNOWLEDGEMENT_INTERVAL, 0, PAGE_MAX_BYTES));
+    }
+
+    @Test
+    public void constructionForNonPositiveCatchUpPageMaxBytesFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Slave(repository, masterClient, 100, REPLICA_ID,
+                ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE, 0));
+    }
+
+    @Test
+    public void constructionForNullMetricsFails() {
+        assertThrows(NullPointerException.class, () -> new Slave(repository, masterClient, 100, REPLICA_ID,
+                ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE, PAGE_MAX_BYTES, null));
+    }
+
+    @Test
+    public void constructionForNegativePullWaitFails() {
+        assertThrows(IllegalArgumentException.class, () -> new Slave(repository, masterClient, 100, REPLICA_ID,
+                ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE, PAGE_MAX_BYTES, SlaveMetrics.NONE, Duration.ofMillis(-1)));
+    }
+
     @Test
     public void getDataSucceeds() {
         var fromSeqNum = 1;
@@ -70,180 +118,454 @@ public class SlaveTest {
         assertFalse(result.isEmpty());
     }
 
+    @Test
+    public void iterateDataIteratesRepository() {
+        var iterator = List.of(new DataElement("data", 1)).iterator();
+        when(repository.iterate(1)).thenReturn(iterator);
+
+        assertSame(iterator, slave.iterateData(1));
+    }
+
+    @Test
+    public void awaitAppliedForNegativeWaitFails() {
+        assertThrows(IllegalArgumentException.class, () -> slave.awaitApplied(1, Duration.ofMillis(-1)));
+    }
+
+    @Test
+    public void awaitAppliedCompletesOnceSeqNumIsApplied() throws Exception {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
+        assertEquals(0, slave.awaitApplied(0, Duration.ZERO).get());
+
+        var applied = slave.awaitApplied(2, Duration.ofSeconds(5));
+        slave.start();
+        slave.appendData(List.of(new DataElement("data1", 1), new DataElement("data2", 2)));
+
+        assertEquals(2, applied.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void awaitAppliedFailsOnceWaitElapses() {
+        var startNano = System.nanoTime();
+        var exception = assertThrows(ExecutionException.class, () -> slave.awaitApplied(1, Duration.ofMillis(200))
+                .get(1, TimeUnit.SECONDS));
+
+        assertTrue(exception.getCause() instanceof TimeoutException);
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNano).toMillis() >= 200);
+    }
+
     @Test
     public void appendDataForNullDataElementFails() {
-        assertThrows(NullPointerException.class, () -> slave.appendData(null));
+        assertThrows(NullPointerException.class, () -> slave.appendData((DataElement) null));
     }
 
     @Test
-    public void slaveRestoresStateFromMasterOnStart() throws InterruptedException {
-        var masterData = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
-        when(masterClient.getDataElements(1)).thenReturn(masterData);
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(repository.appendData("data2")).thenReturn(2L);
+    public void slaveRestoresStateFromMasterOnStartPageByPage() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1), new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data3", 3)));
+        when(masterClient.getDataElements(4, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
+        when(repository.appendAll(List.of("data3"))).thenReturn(3L);
 
         slave.start();
         Thread.sleep(2_000);
 
-        verify(repository).appendData("data1");
-        verify(repository).appendData("data2");
-        verify(masterClient, never()).acknowledgeReception(any());
+        verify(repository).appendAll(List.of("data1", "data2"));
+        verify(repository).appendAll(List.of("data3"));
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 3));
+    }
+
+    @Test
+    public void slaveReportsMetricsOfRestoringStateFromMaster() throws InterruptedException {
+        var metrics = mock(SlaveMetrics.class);
+        var measuredSlave = new Slave(repository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE,
+                PAGE_MAX_BYTES, metrics);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1), new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
+
+        measuredSlave.start();
+        Thread.sleep(1_000);
+        measuredSlave.stop();
+
+        verify(metrics).dataApplied(eq(2), anyLong());
+        verify(metrics).catchUpCompleted(eq(2L), anyLong());
+        assertEquals(2, measuredSlave.getAppliedSeqNum());
+    }
+
+    @Test
+    public void pullingSlaveLongPollsMasterForNewData() throws InterruptedException {
+        var pullWait = Duration.ofMillis(100);
+        var pullingSlave = new Slave(repository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE,
+                PAGE_MAX_BYTES, SlaveMetrics.NONE, pullWait);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES, pullWait)).thenReturn(List.of(
+                new DataElement("data1", 1), new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES, pullWait)).thenReturn(List.of())
+                .thenReturn(List.of(new DataElement("data3", 3)))
+                .thenReturn(List.of());
+        when(masterClient.getDataElements(4, PAGE_SIZE, PAGE_MAX_BYTES, pullWait)).thenAnswer(invocation -> {
+            Thread.sleep(pullWait.toMillis());
+            return List.of();
+        });
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
+        when(repository.appendAll(List.of("data3"))).thenReturn(3L);
+
+        pullingSlave.start();
+        Thread.sleep(1_000);
+        pullingSlave.stop();
+
+        verify(repository).appendAll(List.of("data1", "data2"));
+        verify(repository).appendAll(List.of("data3"));
+        verify(masterClient, timeout(1_000)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 3));
+        verify(masterClient, never()).getDataElements(anyLong(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void emptySlaveInstallsMasterSnapshotAndReplicatesOnlyLogAfterIt() throws Exception {
+        var snapshotRepository = mock(SnapshotRepository.class);
+        var snapshotSlave = new Slave(snapshotRepository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL,
+                PAGE_SIZE, PAGE_MAX_BYTES);
+        var snapshot = new ByteArrayInputStream(new byte[0]);
+        when(masterClient.getSnapshot()).thenReturn(snapshot);
+        when(snapshotRepository.installSnapshot(snapshot)).thenReturn(100L);
+        when(masterClient.getDataElements(101, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data101", 101)));
+        when(masterClient.getDataElements(102, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(snapshotRepository.appendAll(List.of("data101"))).thenReturn(101L);
+
+        snapshotSlave.start();
+        Thread.sleep(1_000);
+        snapshotSlave.stop();
+
+        verify(snapshotRepository).appendAll(List.of("data101"));
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 101));
+        verify(masterClient, never()).getDataElements(eq(1L), anyInt(), anyLong());
+    }
+
+    @Test
+    public void emptySlaveReplicatesWholeLogWhenSnapshotInstallFails() throws Exception {
+        var snapshotRepository = mock(SnapshotRepository.class);
+        var snapshotSlave = new Slave(snapshotRepository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL,
+                PAGE_SIZE, PAGE_MAX_BYTES);
+        var snapshot = new ByteArrayInputStream(new byte[0]);
+        when(masterClient.getSnapshot()).thenReturn(snapshot);
+        when(snapshotRepository.installSnapshot(snapshot)).thenThrow(new IOException("test"));
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1)));
+        when(masterClient.getDataElements(2, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(snapshotRepository.appendAll(List.of("data1"))).thenReturn(1L);
+
+        snapshotSlave.start();
+        Thread.sleep(1_000);
+        snapshotSlave.stop();
+
+        verify(snapshotRepository).appendAll(List.of("data1"));
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 1));
+    }
+
+    @Test
+    public void slaveWithDataDoesNotInstallMasterSnapshot() throws InterruptedException {
+        var snapshotRepository = mock(SnapshotRepository.class);
+        when(snapshotRepository.getLastSeqNum()).thenReturn(5L);
+        var snapshotSlave = new Slave(snapshotRepository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL,
+                PAGE_SIZE, PAGE_MAX_BYTES);
+        when(masterClient.getDataElements(6, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+
+        snapshotSlave.start();
+        Thread.sleep(500);
+        snapshotSlave.stop();
+
+        verify(masterClient, never()).getSnapshot();
     }
 
     @Test
     public void slaveHandlesErrorDuringRestoringStateFromMasterOnStart() throws InterruptedException {
-        var masterData = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
-        when(masterClient.getDataElements(1)).thenReturn(masterData);
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(repository.appendData("data2")).thenThrow(new RuntimeException("test")).thenReturn(2L);
-        when(masterClient.getDataElements(2)).thenReturn(List.of(new DataElement("data2", 2)));
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1), new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenThrow(new RuntimeException("test"))
+                .thenReturn(2L);
 
         slave.start();
-        Thread.sleep(4_000);
+        Thread.sleep(3_000);
+
+        verify(masterClient, times(2)).getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES);
+        verify(repository, times(2)).appendAll(List.of("data1", "data2"));
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
+    }
+
+    @Test
+    public void slaveRejectsNonContiguousPageFromMaster() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
 
-        verify(repository).appendData("data1");
-        verify(repository, times(2)).appendData("data2");
+        slave.start();
+        Thread.sleep(1_500);
+
+        verify(masterClient, times(2)).getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES);
+        verify(repository, never()).appendAll(any());
         verify(masterClient, never()).acknowledgeReception(any());
     }
 
     @Test
     public void slaveForSavedElementSkipsSavingAndAcknowledges() throws InterruptedException {
-        var masterData = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
-        when(masterClient.getDataElements(1)).thenReturn(masterData);
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(repository.appendData("data2")).thenReturn(2L);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1), new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
 
         slave.start();
         Thread.sleep(2_000);
         slave.appendData(new DataElement("data1", 1));
+        Thread.sleep(500);
 
-        verify(repository).appendData("data1");
-        verify(repository).appendData("data2");
-        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 1));
+        verify(repository).appendAll(List.of("data1", "data2"));
+        verify(masterClient, times(2)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
     }
 
     @Test
     public void slaveForSavedElementSkipsSavingHandlesFailingAcknowledgment() throws InterruptedException {
-        var masterData = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
-        when(masterClient.getDataElements(1)).thenReturn(masterData);
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(repository.appendData("data2")).thenReturn(2L);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1), new DataElement("data2", 2)));
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
         doThrow(new RuntimeException("test")).when(masterClient).acknowledgeReception(any());
 
         slave.start();
         Thread.sleep(2_000);
         slave.appendData(new DataElement("data1", 1));
 
-        verify(repository).appendData("data1");
-        verify(repository).appendData("data2");
-        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 1));
+        verify(repository).appendAll(List.of("data1", "data2"));
+        verify(masterClient, timeout(2_000).atLeast(2)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
     }
 
     @Test
-    public void slaveInRaceConditionFetchesMissingElementsFromMaster() throws InterruptedException {
-        var masterData = List.of(new DataElement("data1", 1));
-        when(masterClient.getDataElements(1)).thenReturn(masterData);
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(masterClient.getDataElements(2)).thenReturn(List.of(new DataElement("data2", 2),
-                new DataElement("data3", 3)));
-        when(repository.appendData("data2")).thenReturn(2L);
+    public void slaveInRaceConditionFetchesOnlyMissingElementsFromMaster() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1)));
+        when(masterClient.getDataElements(2, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(masterClient.getDataElements(2, 1, PAGE_MAX_BYTES)).thenReturn(List.of(new DataElement("data2", 2)));
+        when(repository.appendAll(List.of("data1"))).thenReturn(1L);
+        when(repository.appendAll(List.of("data2"))).thenReturn(2L);
+        when(repository.appendAll(List.of("data3"))).thenReturn(3L);
 
         slave.start();
         Thread.sleep(2_000);
         slave.appendData(new DataElement("data3", 3));
         Thread.sleep(2_000);
 
-        verify(repository).appendData("data1");
-        verify(repository).appendData("data2");
-        verify(repository).appendData("data3");
-        verify(masterClient, never()).acknowledgeReception(any());
+        verify(repository).appendAll(List.of("data1"));
+        verify(repository).appendAll(List.of("data2"));
+        verify(repository).appendAll(List.of("data3"));
+        verify(masterClient, timeout(1_000)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 3));
     }
 
     @Test
     public void failingSlaveInRaceConditionRetriesFetchingMissingElementsFromMaster() throws InterruptedException {
-        var masterData = List.of(new DataElement("data1", 1));
-        when(masterClient.getDataElements(1)).thenReturn(masterData);
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(masterClient.getDataElements(2)).thenThrow(new RuntimeException("test"))
-                .thenReturn(List.of(new DataElement("data2", 2), new DataElement("data3", 3)));
-        when(repository.appendData("data2")).thenReturn(2L);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of(
+                new DataElement("data1", 1)));
+        when(masterClient.getDataElements(2, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(masterClient.getDataElements(2, 1, PAGE_MAX_BYTES)).thenThrow(new RuntimeException("test"))
+                .thenReturn(List.of(new DataElement("data2", 2)));
+        when(repository.appendAll(List.of("data1"))).thenReturn(1L);
+        when(repository.appendAll(List.of("data2"))).thenReturn(2L);
+        when(repository.appendAll(List.of("data3"))).thenReturn(3L);
 
         slave.start();
         Thread.sleep(2_000);
         slave.appendData(new DataElement("data3", 3));
         Thread.sleep(2_000);
 
-        verify(repository).appendData("data1");
-        verify(repository).appendData("data2");
-        verify(repository).appendData("data3");
-        verify(masterClient, times(2)).getDataElements(2);
-        verify(masterClient, never()).acknowledgeReception(any());
+        verify(repository).appendAll(List.of("data1"));
+        verify(repository).appendAll(List.of("data2"));
+        verify(repository).appendAll(List.of("data3"));
+        verify(masterClient, times(2)).getDataElements(2, 1, PAGE_MAX_BYTES);
+        verify(masterClient, timeout(1_000)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 3));
     }
 
     @Test
     public void slaveDoesInitialRestoreOnlyOnce() throws InterruptedException {
-        when(masterClient.getDataElements(1)).thenReturn(List.of());
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
 
         slave.start();
         Thread.sleep(3_000);
 
-        verify(masterClient).getDataElements(anyLong());
+        verify(masterClient).getDataElements(anyLong(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void slaveResumesReplicationAfterLastSavedElement() throws InterruptedException {
+        when(repository.getLastSeqNum()).thenReturn(2L);
+        when(masterClient.getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        var restartedSlave = new Slave(repository, masterClient, 100, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL,
+                PAGE_SIZE, PAGE_MAX_BYTES);
+
+        restartedSlave.start();
+        Thread.sleep(2_000);
+        restartedSlave.stop();
+
+        verify(masterClient).getDataElements(3, PAGE_SIZE, PAGE_MAX_BYTES);
+        verify(repository, never()).appendAll(any());
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
     }
 
     @Test
     public void slaveAcceptsDataElementAndAcknowledges() throws InterruptedException {
-        when(masterClient.getDataElements(1)).thenReturn(List.of());
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(repository.appendData("data2")).thenReturn(2L);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1"))).thenReturn(1L);
+        when(repository.appendAll(List.of("data2"))).thenReturn(2L);
 
         slave.start();
         Thread.sleep(2_000);
         slave.appendData(new DataElement("data1", 1));
+        Thread.sleep(500);
         slave.appendData(new DataElement("data2", 2));
+        Thread.sleep(500);
 
-        verify(masterClient).getDataElements(anyLong());
-        verify(repository).appendData("data1");
+        verify(masterClient).getDataElements(anyLong(), anyInt(), anyLong());
+        verify(repository).appendAll(List.of("data1"));
         verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 1));
-        verify(repository).appendData("data2");
+        verify(repository).appendAll(List.of("data2"));
         verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
     }
 
     @Test
-    public void slaveForFailedAcceptRetriesAcceptDataElementAndAcknowledges() throws InterruptedException {
-        when(masterClient.getDataElements(1)).thenReturn(List.of());
-        when(repository.appendData("data1")).thenThrow(new RuntimeException("test")).thenReturn(1L);
-        when(repository.appendData("data2")).thenReturn(2L);
+    public void slaveAppliesQueuedContiguousElementsAsBatchAndAcknowledgesRange() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2", "data3"))).thenReturn(3L);
+        slave.appendData(List.of(new DataElement("data3", 3), new DataElement("data1", 1),
+                new DataElement("data2", 2)));
 
         slave.start();
         Thread.sleep(2_000);
-        slave.appendData(new DataElement("data1", 1));
-        slave.appendData(new DataElement("data2", 2));
+
+        verify(repository).appendAll(List.of("data1", "data2", "data3"));
+        verify(repository, never()).appendData(any());
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 3));
+    }
+
+    @Test
+    public void slaveDropsBufferedDuplicatesAndFetchesOnlyGapFromMaster() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(masterClient.getDataElements(4, 1, PAGE_MAX_BYTES)).thenReturn(List.of(new DataElement("data4", 4)));
+        when(repository.appendAll(List.of("data1", "data2", "data3"))).thenReturn(3L);
+        when(repository.appendAll(List.of("data4"))).thenReturn(4L);
+        when(repository.appendAll(List.of("data5", "data6"))).thenReturn(6L);
+        slave.appendData(List.of(new DataElement("data1", 1), new DataElement("data2", 2),
+                new DataElement("data2", 2), new DataElement("data3", 3), new DataElement("data5", 5),
+                new DataElement("data6", 6)));
+
+        slave.start();
         Thread.sleep(2_000);
 
-        verify(masterClient).getDataElements(anyLong());
-        verify(repository, times(2)).appendData("data1");
-        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 1));
-        verify(repository).appendData("data2");
+        verify(repository).appendAll(List.of("data1", "data2", "data3"));
+        verify(repository).appendAll(List.of("data4"));
+        verify(repository).appendAll(List.of("data5", "data6"));
+        verify(masterClient, timeout(1_000)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 6));
+    }
+
+    @Test
+    public void slaveFetchesElementsBeyondReorderWindowFromMaster() throws InterruptedException {
+        var windowedSlave = new Slave(repository, masterClient, 2, REPLICA_ID, ACKNOWLEDGEMENT_INTERVAL, PAGE_SIZE,
+                PAGE_MAX_BYTES);
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(masterClient.getDataElements(3, 2, PAGE_MAX_BYTES)).thenReturn(List.of(new DataElement("data3", 3),
+                new DataElement("data4", 4)));
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
+        when(repository.appendAll(List.of("data3", "data4"))).thenReturn(4L);
+        windowedSlave.appendData(List.of(new DataElement("data1", 1), new DataElement("data2", 2),
+                new DataElement("data3", 3), new DataElement("data4", 4)));
+
+        assertEquals(2, windowedSlave.getReplicationQueueSize());
+        windowedSlave.start();
+        Thread.sleep(2_000);
+        windowedSlave.stop();
+
+        verify(repository).appendAll(List.of("data1", "data2"));
+        verify(repository).appendAll(List.of("data3", "data4"));
+        verify(masterClient, timeout(1_000)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 4));
+    }
+
+    @Test
+    public void slaveForPushedTailOnlyFetchesPrecedingElementsFromMaster() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(masterClient.getDataElements(1, 3, PAGE_MAX_BYTES)).thenReturn(List.of(new DataElement("data1", 1),
+                new DataElement("data2", 2), new DataElement("data3", 3)));
+        when(repository.appendAll(List.of("data1", "data2", "data3"))).thenReturn(3L);
+        when(repository.appendAll(List.of("data4"))).thenReturn(4L);
+        slave.appendData(List.of(new DataElement("data4", 4)));
+
+        slave.start();
+        Thread.sleep(2_000);
+
+        verify(repository).appendAll(List.of("data1", "data2", "data3"));
+        verify(repository).appendAll(List.of("data4"));
+        verify(masterClient, timeout(1_000)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 4));
+    }
+
+    @Test
+    public void slaveForFailedAcceptRetriesAcceptDataElementAndAcknowledges() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenThrow(new RuntimeException("test"))
+                .thenReturn(2L);
+        slave.appendData(List.of(new DataElement("data1", 1), new DataElement("data2", 2)));
+
+        slave.start();
+        Thread.sleep(3_000);
+
+        verify(masterClient).getDataElements(anyLong(), anyInt(), anyLong());
+        verify(repository, times(2)).appendAll(List.of("data1", "data2"));
         verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
     }
 
     @Test
-    public void slaveAcceptsDataElementAndHandlesFailedAcknowledgement() throws InterruptedException {
-        when(masterClient.getDataElements(1)).thenReturn(List.of());
-        when(repository.appendData("data1")).thenReturn(1L);
-        when(repository.appendData("data2")).thenReturn(2L);
-        doThrow(new RuntimeException("test1")).doThrow(new RuntimeException("test1")).when(masterClient)
-                .acknowledgeReception(any());
+    public void slaveAcceptsDataElementAndRetriesFailedAcknowledgement() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1", "data2"))).thenReturn(2L);
+        doThrow(new RuntimeException("test1")).doNothing().when(masterClient).acknowledgeReception(any());
+        slave.appendData(List.of(new DataElement("data1", 1), new DataElement("data2", 2)));
 
         slave.start();
         Thread.sleep(2_000);
-        slave.appendData(new DataElement("data1", 1));
-        slave.appendData(new DataElement("data2", 2));
 
-        verify(masterClient).getDataElements(anyLong());
-        verify(repository).appendData("data1");
+        verify(masterClient).getDataElements(anyLong(), anyInt(), anyLong());
+        verify(repository).appendAll(List.of("data1", "data2"));
+        verify(masterClient, times(2)).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
+    }
+
+    @Test
+    public void slaveCoalescesAcknowledgementsWithinAcknowledgementInterval() throws InterruptedException {
+        when(masterClient.getDataElements(1, PAGE_SIZE, PAGE_MAX_BYTES)).thenReturn(List.of());
+        when(repository.appendAll(List.of("data1"))).thenReturn(1L);
+        when(repository.appendAll(List.of("data2"))).thenReturn(2L);
+        when(repository.appendAll(List.of("data3"))).thenReturn(3L);
+        var coalescingSlave = new Slave(repository, masterClient, 100, REPLICA_ID, Duration.ofSeconds(1),
+                PAGE_SIZE, PAGE_MAX_BYTES);
+
+        coalescingSlave.start();
+        Thread.sleep(500);
+        coalescingSlave.appendData(new DataElement("data1", 1));
+        Thread.sleep(100);
+        coalescingSlave.appendData(new DataElement("data2", 2));
+        Thread.sleep(100);
+        coalescingSlave.appendData(new DataElement("data3", 3));
+        Thread.sleep(1_500);
+        coalescingSlave.stop();
+
         verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 1));
-        verify(repository).appendData("data2");
-        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
+        verify(masterClient, never()).acknowledgeReception(new Acknowledgement(REPLICA_ID, 2));
+        verify(masterClient).acknowledgeReception(new Acknowledgement(REPLICA_ID, 3));
+    }
+
+    @Test
+    public void appendDataForListWithNullDataElementFails() {
+        var dataElements = new ArrayList<DataElement>();
+        dataElements.add(null);
+
+        assertThrows(NullPointerException.class, () -> slave.appendData(dataElements));
     }
 }
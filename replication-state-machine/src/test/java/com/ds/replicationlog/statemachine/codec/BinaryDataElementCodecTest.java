@@ -0,0 +1,78 @@
+package com.ds.replicationlog.statemachine.codec;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryDataElementCodecTest {
+
+    @Test
+    public void encodedDataElementsAreDecoded() {
+        var dataElements = List.of(new DataElement("data1", 1), new DataElement("", 2),
+                new DataElement("payload", 5), new DataElement("reordered", 3), new DataElement("big", Long.MAX_VALUE));
+
+        assertEquals(dataElements, BinaryDataElementCodec.decode(encode(dataElements)));
+    }
+
+    @Test
+    public void emptyListIsEncoded() {
+        assertEquals(List.of(), BinaryDataElementCodec.decode(encode(List.of())));
+    }
+
+    @Test
+    public void contiguousSequenceNumbersTakeOneByte() {
+        var encoded = encode(List.of(new DataElement("a", 1_000_000), new DataElement("b", 1_000_001),
+                new DataElement("c", 1_000_002)));
+
+        // count, then sequence number delta, payload length and payload of every element
+        assertEquals(1 + (3 + 1 + 1) + 2 * (1 + 1 + 1), encoded.remaining());
+    }
+
+    @Test
+    public void payloadIsEncodedAsUtf8() {
+        var data = "ascii é € 😀 unpaired \uD800 end";
+        var expected = data.getBytes(StandardCharsets.UTF_8);
+
+        var encoded = encode(List.of(new DataElement(data, 1)));
+
+        assertEquals(expected.length, BinaryDataElementCodec.utf8Length(data));
+        assertEquals(ByteBuffer.wrap(expected), encoded.slice(encoded.limit() - expected.length, expected.length));
+        assertEquals(List.of(new DataElement(data.replace('\uD800', '?'), 1)), BinaryDataElementCodec.decode(encoded));
+    }
+
+    @Test
+    public void maxEncodedLengthIsEnoughForAnyPayload() {
+        var dataElements = List.of(new DataElement("￿".repeat(100), Long.MAX_VALUE));
+
+        assertTrue(encode(dataElements).remaining() <= BinaryDataElementCodec.maxEncodedLength(dataElements));
+    }
+
+    @Test
+    public void decodeForTruncatedMessageFails() {
+        var encoded = encode(List.of(new DataElement("data", 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryDataElementCodec.decode(
+                encoded.limit(encoded.limit() - 1)));
+    }
+
+    @Test
+    public void decodeForTrailingBytesFails() {
+        var encoded = encode(List.of(new DataElement("data", 1)));
+        var withTrailingByte = ByteBuffer.allocate(encoded.remaining() + 1).put(encoded).put((byte) 0).flip();
+
+        assertThrows(IllegalArgumentException.class, () -> BinaryDataElementCodec.decode(withTrailingByte));
+    }
+
+    private static ByteBuffer encode(List<DataElement> dataElements) {
+        var buffer = ByteBuffer.allocate(BinaryDataElementCodec.maxEncodedLength(dataElements));
+        BinaryDataElementCodec.encode(dataElements, buffer);
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,69 @@
+package com.ds.replicationlog.statemachine.codec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ByteBufferPoolTest {
+
+    @Test
+    public void constructionForNonPositiveBufferSizeFails() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(0, 1));
+    }
+
+    @Test
+    public void constructionForNonPositiveMaxPooledBuffersFails() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(16, 0));
+    }
+
+    @Test
+    public void acquireLimitsBufferToRequestedCapacity() {
+        var pool = new ByteBufferPool(16, 1);
+
+        var buffer = pool.acquire(10);
+
+        assertEquals(0, buffer.position());
+        assertEquals(10, buffer.limit());
+    }
+
+    @Test
+    public void releasedBufferIsReused() {
+        var pool = new ByteBufferPool(16, 1);
+        var buffer = pool.acquire(10);
+        buffer.put((byte) 1);
+
+        pool.release(buffer);
+        var reused = pool.acquire(16);
+
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(16, reused.limit());
+    }
+
+    @Test
+    public void oversizedBufferIsNotPooled() {
+        var pool = new ByteBufferPool(16, 1);
+        var buffer = pool.acquire(32);
+
+        pool.release(buffer);
+
+        assertEquals(32, buffer.capacity());
+        assertNotSame(buffer, pool.acquire(32));
+    }
+
+    @Test
+    public void poolKeepsAtMostMaxPooledBuffers() {
+        var pool = new ByteBufferPool(16, 1);
+        var first = pool.acquire(16);
+        var second = pool.acquire(16);
+
+        pool.release(first);
+        pool.release(second);
+
+        assertSame(first, pool.acquire(16));
+        assertNotSame(second, pool.acquire(16));
+    }
+}
@@ -0,0 +1,72 @@
+package com.ds.replicationlog.statemachine.codec;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.DataElement;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplicationStreamCodecTest {
+    private static final int MAX_LENGTH = 1024;
+
+    private final ByteBufferPool pool = new ByteBufferPool(64, 1);
+
+    @Test
+    public void framesAreReadInWrittenOrder() throws IOException {
+        var dataElements1 = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        var dataElements2 = List.of(new DataElement("data3".repeat(100), 3));
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+
+        ReplicationStreamCodec.writeDataElements(out, dataElements1, pool);
+        ReplicationStreamCodec.writeDataElements(out, dataElements2, pool);
+        ReplicationStreamCodec.writeAcknowledgement(out, new Acknowledgement("r1", 3));
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(dataElements1, ReplicationStreamCodec.readDataElements(in, MAX_LENGTH, pool));
+        assertEquals(dataElements2, ReplicationStreamCodec.readDataElements(in, MAX_LENGTH, pool));
+        assertEquals(new Acknowledgement("r1", 3), ReplicationStreamCodec.readAcknowledgement(in));
+    }
+
+    @Test
+    public void readForUnexpectedFrameTypeFails() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        ReplicationStreamCodec.writeAcknowledgement(new DataOutputStream(bytes), new Acknowledgement("r1", 1));
+
+        assertThrows(IOException.class, () -> ReplicationStreamCodec.readDataElements(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), MAX_LENGTH, pool));
+    }
+
+    @Test
+    public void readForTruncatedFrameFails() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        ReplicationStreamCodec.writeDataElements(new DataOutputStream(bytes), List.of(new DataElement("data", 1)),
+                pool);
+        var truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1);
+
+        assertThrows(EOFException.class, () -> ReplicationStreamCodec.readDataElements(
+                new DataInputStream(new ByteArrayInputStream(truncated)), MAX_LENGTH, pool));
+    }
+
+    @Test
+    public void readForFrameAboveMaxLengthFails() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        ReplicationStreamCodec.writeDataElements(new DataOutputStream(bytes),
+                List.of(new DataElement("data".repeat(MAX_LENGTH), 1)), pool);
+
+        var exception = assertThrows(IOException.class, () -> ReplicationStreamCodec.readDataElements(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), MAX_LENGTH, pool));
+        assertTrue(exception.getMessage().contains("exceeds"));
+    }
+}
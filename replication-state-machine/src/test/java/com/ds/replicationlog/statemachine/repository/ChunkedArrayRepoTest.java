@@ -0,0 +1,240 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkedArrayRepoTest {
+
+    @Test
+    public void appendDataForNullDataFails() {
+        var repo = new ChunkedArrayRepo();
+
+        assertThrows(NullPointerException.class, () -> repo.appendData(null));
+    }
+
+    @Test
+    public void appendDataAddsDataWithIncrementedSequenceNum() {
+        var repo = new ChunkedArrayRepo();
+        var addedData = new ArrayList<DataElement>();
+
+        for (var i = 0; i < 1_000; i++) {
+            var data = UUID.randomUUID().toString();
+            var seqNum = repo.appendData(data);
+            addedData.add(new DataElement(data, seqNum));
+        }
+
+        assertEquals(addedData.stream().filter(d -> d.sequenceNum() >= 500).collect(Collectors.toList()),
+                repo.getDataElements(500));
+    }
+
+    @Test
+    public void getDataElementsForEmptyRepoReturnsEmptyList() {
+        var repo = new ChunkedArrayRepo();
+
+        assertTrue(repo.getDataElements(0).isEmpty());
+    }
+
+    @Test
+    public void getDataElementsBeyondLastSeqNumReturnsEmptyList() {
+        var repo = new ChunkedArrayRepo();
+        repo.appendData("data");
+
+        assertTrue(repo.getDataElements(2).isEmpty());
+    }
+
+    @Test
+    public void getDataElementsSpanningSeveralChunksReturnsOrderedElements() {
+        var repo = new ChunkedArrayRepo();
+        var count = 100_000;
+        for (var i = 1; i <= count; i++) {
+            repo.appendData(String.valueOf(i));
+        }
+
+        var result = repo.getDataElements(10);
+
+        assertEquals(count - 9, result.size());
+        for (var i = 0; i < result.size(); i++) {
+            assertEquals(new DataElement(String.valueOf(i + 10), i + 10), result.get(i));
+        }
+    }
+
+    @Test
+    public void concurrentReadersSeeConsistentPrefix() throws InterruptedException {
+        var repo = new ChunkedArrayRepo();
+        var failed = new AtomicBoolean();
+        var writer = Thread.startVirtualThread(() -> {
+            for (var i = 1; i <= 200_000; i++) {
+                repo.appendData(String.valueOf(i));
+            }
+        });
+        var reader = Thread.startVirtualThread(() -> {
+            while (writer.isAlive()) {
+                var result = repo.getDataElements(1);
+                for (var i = 0; i < result.size(); i++) {
+                    if (result.get(i) == null || result.get(i).sequenceNum() != i + 1) {
+                        failed.set(true);
+                        return;
+                    }
+                }
+            }
+        });
+
+        writer.join();
+        reader.join();
+
+        assertFalse(failed.get());
+        assertEquals(200_000, repo.getDataElements(1).size());
+    }
+
+    @Test
+    public void appendAllAssignsContiguousSequenceNums() {
+        var repo = new ChunkedArrayRepo();
+        repo.appendData("data0");
+
+        var lastSeqNum = repo.appendAll(List.of("data1", "data2", "data3"));
+
+        assertEquals(4, lastSeqNum);
+        assertEquals(List.of(new DataElement("data1", 2), new DataElement("data2", 3), new DataElement("data3", 4)),
+                repo.getDataElements(2));
+    }
+
+    @Test
+    public void appendAllForNullDataFails() {
+        var repo = new ChunkedArrayRepo();
+
+        assertThrows(NullPointerException.class, () -> repo.appendAll(Arrays.asList("data", null)));
+    }
+
+    @Test
+    public void getDataElementsPageSpanningSeveralChunksIsLimited() {
+        var repo = new ChunkedArrayRepo();
+        var count = 40_000;
+        for (var i = 1; i <= count; i++) {
+            repo.appendData(String.valueOf(i));
+        }
+
+        var result = repo.getDataElements(16_000, 1_000);
+
+        assertEquals(1_000, result.size());
+        for (var i = 0; i < result.size(); i++) {
+            assertEquals(new DataElement(String.valueOf(i + 16_000), i + 16_000), result.get(i));
+        }
+        assertEquals(List.of(new DataElement(String.valueOf(count), count)), repo.getDataElements(count, 1_000));
+    }
+
+    @Test
+    public void getDataElementsForNonPositiveLimitFails() {
+        var repo = new ChunkedArrayRepo();
+
+        assertThrows(IllegalArgumentException.class, () -> repo.getDataElements(1, 0));
+    }
+
+    @Test
+    public void truncateBeforeDropsElementsBelowSeqNumAcrossChunks() {
+        var repo = new ChunkedArrayRepo();
+        for (var i = 1; i <= 40_000; i++) {
+            repo.appendData(String.valueOf(i));
+        }
+
+        repo.truncateBefore(20_000);
+
+        assertEquals(new DataElement("20000", 20_000), repo.getDataElements(1, 10).getFirst());
+        assertEquals(20_001, repo.getDataElements(1).size());
+        assertEquals(40_000, repo.getLastSeqNum());
+        assertEquals(40_001, repo.appendData("40001"));
+    }
+
+    @Test
+    public void concurrentReadersSeeContiguousElementsWhileTruncating() throws InterruptedException {
+        var repo = new ChunkedArrayRepo();
+        for (var i = 1; i <= 200_000; i++) {
+            repo.appendData(String.valueOf(i));
+        }
+        var failed = new AtomicBoolean();
+        var truncator = Thread.startVirtualThread(() -> {
+            for (var seqNum = 1; seqNum <= 200_000; seqNum += 1_000) {
+                repo.truncateBefore(seqNum);
+            }
+        });
+        var reader = Thread.startVirtualThread(() -> {
+            while (truncator.isAlive()) {
+                var result = repo.getDataElements(1, 50_000);
+                for (var i = 1; i < result.size(); i++) {
+                    if (result.get(i).sequenceNum() != result.getFirst().sequenceNum() + i) {
+                        failed.set(true);
+                        return;
+                    }
+                }
+            }
+        });
+
+        truncator.join();
+        reader.join();
+
+        assertFalse(failed.get());
+    }
+
+    @Test
+    public void restartAfterContinuesNumberingAfterSeqNum() {
+        var repo = new ChunkedArrayRepo();
+        repo.appendAll(List.of("data1", "data2"));
+
+        repo.restartAfter(100_000);
+
+        assertEquals(100_000, repo.getLastSeqNum());
+        assertEquals(List.of(), repo.getDataElements(1));
+        assertEquals(100_001, repo.appendData("data"));
+        assertEquals(List.of(new DataElement("data", 100_001)), repo.getDataElements(1));
+    }
+
+    @Test
+    public void restartAfterBelowLastSeqNumFails() {
+        var repo = new ChunkedArrayRepo();
+        repo.appendAll(List.of("data1", "data2"));
+
+        assertThrows(IllegalArgumentException.class, () -> repo.restartAfter(1));
+    }
+
+    @Test
+    public void iterateReturnsElementsUpToLastSeqNumAtCall() {
+        var repo = new ChunkedArrayRepo();
+        for (var i = 1; i <= 40_000; i++) {
+            repo.appendData(String.valueOf(i));
+        }
+
+        var iterator = repo.iterate(10);
+        repo.appendData("40001");
+        var result = new ArrayList<DataElement>();
+        iterator.forEachRemaining(result::add);
+
+        assertEquals(repo.getDataElements(10, 39_991), result);
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    public void iterateSkipsElementsTruncatedWhileIterating() {
+        var repo = new ChunkedArrayRepo();
+        for (var i = 1; i <= 40_000; i++) {
+            repo.appendData(String.valueOf(i));
+        }
+        var iterator = repo.iterate(1);
+
+        assertEquals(new DataElement("1", 1), iterator.next());
+        repo.truncateBefore(20_000);
+
+        assertEquals(new DataElement("20000", 20_000), iterator.next());
+    }
+}
@@ -4,6 +4,8 @@ import com.ds.replicationlog.statemachine.DataElement;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -33,4 +35,69 @@ public class InMemoryRepoTest {
         assertEquals(addedData.stream().filter(d -> d.sequenceNum() >= 500).collect(Collectors.toList()),
                 repo.getDataElements(500));
     }
+
+    @Test
+    public void appendAllAssignsContiguousSequenceNums() {
+        var repo = new InMemoryRepo();
+        repo.appendData("data0");
+
+        var lastSeqNum = repo.appendAll(List.of("data1", "data2", "data3"));
+
+        assertEquals(4, lastSeqNum);
+        assertEquals(List.of(new DataElement("data1", 2), new DataElement("data2", 3), new DataElement("data3", 4)),
+                repo.getDataElements(2));
+    }
+
+    @Test
+    public void appendAllForNullDataFails() {
+        var repo = new InMemoryRepo();
+
+        assertThrows(NullPointerException.class, () -> repo.appendAll(Arrays.asList("data", null)));
+    }
+
+    @Test
+    public void getDataElementsPageIsLimited() {
+        var repo = new InMemoryRepo();
+        repo.appendAll(List.of("data1", "data2", "data3"));
+
+        assertEquals(List.of(new DataElement("data2", 2)), repo.getDataElements(2, 1));
+    }
+
+    @Test
+    public void getDataElementsForNonPositiveLimitFails() {
+        var repo = new InMemoryRepo();
+
+        assertThrows(IllegalArgumentException.class, () -> repo.getDataElements(1, 0));
+    }
+
+    @Test
+    public void truncateBeforeDropsElementsBelowSeqNum() {
+        var repo = new InMemoryRepo();
+        repo.appendAll(List.of("data1", "data2", "data3"));
+
+        repo.truncateBefore(3);
+
+        assertEquals(List.of(new DataElement("data3", 3)), repo.getDataElements(1));
+        assertEquals(4, repo.appendData("data4"));
+    }
+
+    @Test
+    public void restartAfterContinuesNumberingAfterSeqNum() {
+        var repo = new InMemoryRepo();
+        repo.appendAll(List.of("data1", "data2"));
+
+        repo.restartAfter(100);
+
+        assertEquals(100, repo.getLastSeqNum());
+        assertEquals(List.of(), repo.getDataElements(1));
+        assertEquals(101, repo.appendData("data"));
+    }
+
+    @Test
+    public void restartAfterBelowLastSeqNumFails() {
+        var repo = new InMemoryRepo();
+        repo.appendAll(List.of("data1", "data2"));
+
+        assertThrows(IllegalArgumentException.class, () -> repo.restartAfter(1));
+    }
 }
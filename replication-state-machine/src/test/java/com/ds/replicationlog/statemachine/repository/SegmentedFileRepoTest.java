@@ -0,0 +1,261 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentedFileRepoTest {
+    private static final Duration FSYNC_INTERVAL = Duration.ofMillis(10);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void constructionForNullDirectoryFails() {
+        assertThrows(NullPointerException.class, () -> new SegmentedFileRepo(null, 1_024,
+                SegmentedFileRepo.FsyncPolicy.OS_MANAGED, FSYNC_INTERVAL));
+    }
+
+    @Test
+    public void constructionForTooSmallSegmentFails() {
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedFileRepo(directory, 8,
+                SegmentedFileRepo.FsyncPolicy.OS_MANAGED, FSYNC_INTERVAL));
+    }
+
+    @Test
+    public void constructionForNonPositivePeriodicFsyncIntervalFails() {
+        assertThrows(IllegalArgumentException.class, () -> new SegmentedFileRepo(directory, 1_024,
+                SegmentedFileRepo.FsyncPolicy.PERIODIC, Duration.ZERO));
+    }
+
+    @Test
+    public void appendDataForNullDataFails() {
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            assertThrows(NullPointerException.class, () -> repo.appendData(null));
+        }
+    }
+
+    @Test
+    public void appendDataForElementLargerThanSegmentFails() {
+        try (var repo = new SegmentedFileRepo(directory, 64, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            assertThrows(IllegalArgumentException.class, () -> repo.appendData("x".repeat(64)));
+        }
+    }
+
+    @Test
+    public void appendDataAddsDataWithIncrementedSequenceNumAcrossSegments() {
+        var addedData = new ArrayList<DataElement>();
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            for (var i = 0; i < 1_000; i++) {
+                var data = UUID.randomUUID().toString();
+                var seqNum = repo.appendData(data);
+                addedData.add(new DataElement(data, seqNum));
+            }
+
+            assertEquals(addedData.stream().filter(d -> d.sequenceNum() >= 500).collect(Collectors.toList()),
+                    repo.getDataElements(500));
+            assertEquals(addedData, repo.getDataElements(0));
+            assertEquals(1_000, repo.getLastSeqNum());
+        }
+    }
+
+    @Test
+    public void getDataElementsBeyondLastSeqNumReturnsEmptyList() {
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            repo.appendData("data");
+
+            assertTrue(repo.getDataElements(2).isEmpty());
+        }
+    }
+
+    @Test
+    public void reopenedRepoRestoresDataAndSequenceNum() {
+        var addedData = new ArrayList<DataElement>();
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.PERIODIC,
+                FSYNC_INTERVAL)) {
+            for (var i = 0; i < 100; i++) {
+                var data = "data" + i;
+                addedData.add(new DataElement(data, repo.appendData(data)));
+            }
+        }
+
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.PERIODIC,
+                FSYNC_INTERVAL)) {
+            assertEquals(100, repo.getLastSeqNum());
+            assertEquals(addedData, repo.getDataElements(1));
+            assertEquals(101, repo.appendData("next"));
+            assertEquals(new DataElement("next", 101), repo.getDataElements(101).getFirst());
+        }
+    }
+
+    @Test
+    public void reopenedRepoIgnoresTornRecordAtTail() throws IOException {
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            repo.appendData("data1");
+            repo.appendData("data2");
+        }
+        var tailSegment = directory.resolve("%020d.log".formatted(1));
+        var secondRecordPayloadPosition = 16 + "data1".length() + 16;
+        try (var channel = FileChannel.open(tailSegment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), secondRecordPayloadPosition);
+        }
+
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            assertEquals(1, repo.getLastSeqNum());
+            assertEquals(2, repo.appendData("data3"));
+            assertEquals(new DataElement("data3", 2), repo.getDataElements(2).getFirst());
+        }
+        assertTrue(Files.exists(tailSegment));
+    }
+
+    @Test
+    public void failedAppendAllLeavesNoElementsBehind() throws IOException {
+        // Room for two one-byte records, so the third element rolls onto a segment whose file is taken already
+        var segmentSize = 2 * (16 + 1);
+        try (var repo = new SegmentedFileRepo(directory, segmentSize, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            repo.appendData("a");
+            var blockingFile = Files.createFile(directory.resolve("%020d.log".formatted(3)));
+
+            assertThrows(RuntimeException.class, () -> repo.appendAll(List.of("b", "c")));
+
+            assertEquals(1, repo.getLastSeqNum());
+            Files.delete(blockingFile);
+            assertEquals(2, repo.appendData("x"));
+            assertEquals(List.of(new DataElement("a", 1), new DataElement("x", 2)), repo.getDataElements(1));
+        }
+    }
+
+    @Test
+    public void reopenedRepoIgnoresElementsOfFailedAppend() throws IOException {
+        var segmentSize = 2 * (16 + 1);
+        try (var repo = new SegmentedFileRepo(directory, segmentSize, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            repo.appendData("a");
+            Files.createFile(directory.resolve("%020d.log".formatted(3)));
+
+            assertThrows(RuntimeException.class, () -> repo.appendAll(List.of("b", "c")));
+        }
+        Files.delete(directory.resolve("%020d.log".formatted(3)));
+
+        try (var repo = new SegmentedFileRepo(directory, segmentSize, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            assertEquals(1, repo.getLastSeqNum());
+            assertEquals(List.of(new DataElement("a", 1)), repo.getDataElements(1));
+        }
+    }
+
+    @Test
+    public void appendAllAssignsContiguousSequenceNumsAcrossSegments() {
+        try (var repo = new SegmentedFileRepo(directory, 64, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            repo.appendData("data0");
+
+            var lastSeqNum = repo.appendAll(List.of("data1", "data2", "data3"));
+
+            assertEquals(4, lastSeqNum);
+            assertEquals(List.of(new DataElement("data1", 2), new DataElement("data2", 3),
+                    new DataElement("data3", 4)), repo.getDataElements(2));
+        }
+    }
+
+    @Test
+    public void getDataElementsPageSpanningSegmentsIsLimited() {
+        try (var repo = new SegmentedFileRepo(directory, 64, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            repo.appendAll(List.of("data1", "data2", "data3", "data4", "data5"));
+
+            assertEquals(List.of(new DataElement("data2", 2), new DataElement("data3", 3),
+                    new DataElement("data4", 4)), repo.getDataElements(2, 3));
+            assertEquals(List.of(new DataElement("data5", 5)), repo.getDataElements(5, 3));
+            assertThrows(IllegalArgumentException.class, () -> repo.getDataElements(1, 0));
+        }
+    }
+
+    @Test
+    public void truncateBeforeDeletesSegmentsBelowSeqNum() {
+        var data = List.of("data1", "data2", "data3", "data4", "data5", "data6", "data7", "data8", "data9");
+        try (var repo = new SegmentedFileRepo(directory, 64, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            repo.appendAll(data);
+
+            repo.truncateBefore(5);
+
+            assertEquals(new DataElement("data4", 4), repo.getDataElements(1).getFirst());
+        }
+        assertFalse(Files.exists(directory.resolve("%020d.log".formatted(1))));
+
+        try (var repo = new SegmentedFileRepo(directory, 64, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            assertEquals(9, repo.getLastSeqNum());
+            assertEquals(6, repo.getDataElements(1).size());
+            assertEquals(new DataElement("data4", 4), repo.getDataElements(1).getFirst());
+        }
+    }
+
+    @Test
+    public void truncateBeforeKeepsTailSegment() {
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            repo.appendAll(List.of("data1", "data2"));
+
+            repo.truncateBefore(3);
+
+            assertEquals(2, repo.getDataElements(1).size());
+            assertEquals(3, repo.appendData("data3"));
+        }
+    }
+
+    @Test
+    public void restartAfterContinuesNumberingAfterSeqNum() {
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            repo.appendAll(List.of("data1", "data2"));
+
+            repo.restartAfter(100);
+
+            assertEquals(100, repo.getLastSeqNum());
+            assertEquals(List.of(), repo.getDataElements(1));
+            assertEquals(101, repo.appendData("data"));
+        }
+
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.EVERY_APPEND,
+                FSYNC_INTERVAL)) {
+            assertEquals(101, repo.getLastSeqNum());
+            assertEquals(List.of(new DataElement("data", 101)), repo.getDataElements(1));
+        }
+    }
+
+    @Test
+    public void restartAfterBelowLastSeqNumFails() {
+        try (var repo = new SegmentedFileRepo(directory, 1_024, SegmentedFileRepo.FsyncPolicy.OS_MANAGED,
+                FSYNC_INTERVAL)) {
+            repo.appendAll(List.of("data1", "data2"));
+
+            assertThrows(IllegalArgumentException.class, () -> repo.restartAfter(1));
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.ds.replicationlog.statemachine.repository;
+
+import com.ds.replicationlog.statemachine.DataElement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SnapshottingRepoTest {
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofHours(1);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void constructionForNullLogFails() {
+        assertThrows(NullPointerException.class, () -> new SnapshottingRepo(null, directory, 0, SNAPSHOT_INTERVAL));
+    }
+
+    @Test
+    public void constructionForNegativeRetainedElementsFails() {
+        assertThrows(IllegalArgumentException.class, () -> new SnapshottingRepo(new ChunkedArrayRepo(), directory,
+                -1, SNAPSHOT_INTERVAL));
+    }
+
+    @Test
+    public void constructionForNonPositiveSnapshotIntervalFails() {
+        assertThrows(IllegalArgumentException.class, () -> new SnapshottingRepo(new ChunkedArrayRepo(), directory,
+                0, Duration.ZERO));
+    }
+
+    @Test
+    public void snapshotMovesElementsToSnapshotAndTruncatesLog() {
+        var log = new ChunkedArrayRepo();
+        try (var repo = new SnapshottingRepo(log, directory, 0, SNAPSHOT_INTERVAL)) {
+            var addedData = append(repo, 3_000);
+
+            repo.snapshot(2_500);
+
+            assertEquals(2_500, repo.getSnapshotSeqNum());
+            assertEquals(2_501, log.getDataElements(1, 1).getFirst().sequenceNum());
+            assertEquals(addedData, repo.getDataElements(1));
+            assertEquals(addedData.subList(2_399, 2_599), repo.getDataElements(2_400, 200));
+            assertEquals(3_000, repo.getLastSeqNum());
+        }
+    }
+
+    @Test
+    public void snapshotBeyondLastSeqNumSnapshotsWholeLog() {
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            var addedData = append(repo, 10);
+
+            repo.snapshot(Long.MAX_VALUE);
+
+            assertEquals(10, repo.getSnapshotSeqNum());
+            assertEquals(addedData, repo.getDataElements(1));
+            assertEquals(11, repo.appendData("data11"));
+        }
+    }
+
+    @Test
+    public void scheduledSnapshotKeepsRetainedElementsInLog() throws InterruptedException {
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 10, Duration.ofMillis(10))) {
+            var addedData = append(repo, 100);
+            var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (repo.getSnapshotSeqNum() < 90 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(90, repo.getSnapshotSeqNum());
+            assertEquals(addedData, repo.getDataElements(1));
+        }
+    }
+
+    @Test
+    public void reopenedRepoRestoresSnapshotAndContinuesLogAfterIt() {
+        List<DataElement> addedData;
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            addedData = append(repo, 100);
+            repo.snapshot(100);
+        }
+
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            assertEquals(100, repo.getLastSeqNum());
+            assertEquals(addedData, repo.getDataElements(1));
+            assertEquals(101, repo.appendData("next"));
+            assertEquals(List.of(new DataElement("next", 101)), repo.getDataElements(101));
+        }
+    }
+
+    @Test
+    public void reopenedRepoIgnoresTornFrameAtTail() throws IOException {
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            append(repo, 20);
+            repo.snapshot(10);
+            repo.snapshot(20);
+        }
+        try (var channel = FileChannel.open(directory.resolve("snapshot.bin"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), channel.size() - 1);
+        }
+
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            assertEquals(10, repo.getSnapshotSeqNum());
+            assertEquals(10, repo.getLastSeqNum());
+            assertEquals(11, repo.appendData("data11"));
+        }
+    }
+
+    @Test
+    public void installSnapshotCopiesSnapshotOfAnotherRepo() throws IOException {
+        var snapshot = new ByteArrayOutputStream();
+        List<DataElement> addedData;
+        try (var source = new SnapshottingRepo(new ChunkedArrayRepo(), directory.resolve("source"), 0,
+                SNAPSHOT_INTERVAL)) {
+            addedData = append(source, 3_000);
+            source.snapshot(2_500);
+            assertEquals(2_500, source.transferSnapshot(snapshot));
+        }
+
+        try (var target = new SnapshottingRepo(new ChunkedArrayRepo(), directory.resolve("target"), 0,
+                SNAPSHOT_INTERVAL)) {
+            assertEquals(2_500, target.installSnapshot(new ByteArrayInputStream(snapshot.toByteArray())));
+
+            assertEquals(2_500, target.getLastSeqNum());
+            assertEquals(addedData.subList(0, 2_500), target.getDataElements(1));
+            assertEquals(2_501, target.appendData("next"));
+        }
+    }
+
+    @Test
+    public void installEmptySnapshotKeepsRepoEmpty() throws IOException {
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            assertEquals(0, repo.installSnapshot(new ByteArrayInputStream(new byte[0])));
+
+            assertEquals(0, repo.getLastSeqNum());
+            assertEquals(1, repo.appendData("data1"));
+        }
+    }
+
+    @Test
+    public void installSnapshotIntoNonEmptyRepoFails() {
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            repo.appendData("data1");
+
+            assertThrows(IllegalStateException.class, () -> repo.installSnapshot(
+                    new ByteArrayInputStream(new byte[0])));
+        }
+    }
+
+    @Test
+    public void installTruncatedSnapshotFails() throws IOException {
+        var snapshot = new ByteArrayOutputStream();
+        try (var source = new SnapshottingRepo(new ChunkedArrayRepo(), directory.resolve("source"), 0,
+                SNAPSHOT_INTERVAL)) {
+            append(source, 10);
+            source.snapshot(10);
+            source.transferSnapshot(snapshot);
+        }
+        var truncated = Arrays.copyOf(snapshot.toByteArray(), snapshot.size() - 1);
+
+        try (var target = new SnapshottingRepo(new ChunkedArrayRepo(), directory.resolve("target"), 0,
+                SNAPSHOT_INTERVAL)) {
+            assertThrows(IOException.class, () -> target.installSnapshot(new ByteArrayInputStream(truncated)));
+
+            assertEquals(0, target.getLastSeqNum());
+            assertEquals(0, target.getSnapshotSeqNum());
+        }
+    }
+
+    @Test
+    public void concurrentReadersSeeContiguousElementsWhileSnapshotting() throws InterruptedException {
+        try (var repo = new SnapshottingRepo(new ChunkedArrayRepo(), directory, 0, SNAPSHOT_INTERVAL)) {
+            append(repo, 50_000);
+            var failed = new AtomicBoolean();
+            var snapshotter = Thread.startVirtualThread(() -> {
+                for (var seqNum = 1_000; seqNum <= 50_000; seqNum += 1_000) {
+                    repo.snapshot(seqNum);
+                }
+            });
+            var reader = Thread.startVirtualThread(() -> {
+                while (snapshotter.isAlive()) {
+                    var result = repo.getDataElements(1, 50_000);
+                    for (var i = 0; i < result.size(); i++) {
+                        if (result.get(i).sequenceNum() != i + 1) {
+                            failed.set(true);
+                            return;
+                        }
+                    }
+                    if (result.size() != 50_000) {
+                        failed.set(true);
+                        return;
+                    }
+                }
+            });
+
+            snapshotter.join();
+            reader.join();
+
+            assertFalse(failed.get());
+            assertEquals(50_000, repo.getSnapshotSeqNum());
+        }
+    }
+
+    private static List<DataElement> append(SnapshottingRepo repo, int count) {
+        var addedData = new ArrayList<DataElement>();
+        for (var i = 1; i <= count; i++) {
+            var data = "data" + i;
+            addedData.add(new DataElement(data, repo.appendData(data)));
+        }
+        return addedData;
+    }
+}
@@ -3,7 +3,15 @@ package com.ds.replicationlog.slave;
 import com.ds.replicationlog.statemachine.DataRepository;
 import com.ds.replicationlog.statemachine.MasterClient;
 import com.ds.replicationlog.statemachine.Slave;
-import com.ds.replicationlog.statemachine.repository.InMemoryRepo;
+import com.ds.replicationlog.statemachine.SlaveMetrics;
+import com.ds.replicationlog.statemachine.TruncatableRepository;
+import com.ds.replicationlog.statemachine.repository.ChunkedArrayRepo;
+import com.ds.replicationlog.statemachine.repository.OffHeapRepo;
+import com.ds.replicationlog.statemachine.repository.SegmentedFileRepo;
+import com.ds.replicationlog.statemachine.repository.SnapshottingRepo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,7 +19,8 @@ import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.scheduling.annotation.EnableAsync;
 
-import java.util.UUID;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 
 @SuppressWarnings("unused")
@@ -29,12 +38,52 @@ public class AppConfig {
     }
 
     @Bean(initMethod = "start", destroyMethod = "stop")
-    public Slave slave(DataRepository repository, MasterClient masterClient) {
-        return new Slave(repository, masterClient, 1_000, UUID.randomUUID().toString());
+    public Slave slave(DataRepository repository, MasterClient masterClient, SlaveMetrics slaveMetrics,
+                       @Value("${acknowledgementIntervalMillis}") int acknowledgementIntervalMillis,
+                       @Value("${catchUpPageSize}") int catchUpPageSize,
+                       @Value("${catchUpPageMaxBytes}") long catchUpPageMaxBytes,
+                       @Value("${replicationTransport}") String replicationTransport,
+                       @Value("${pullWaitMillis}") int pullWaitMillis,
+                       @Value("${reorderWindowSize}") int reorderWindowSize,
+                       @Value("${replicaId}") String replicaId) {
+        var pullWait = "PULL".equals(replicationTransport) ? Duration.ofMillis(pullWaitMillis) : Duration.ZERO;
+        return new Slave(repository, masterClient, reorderWindowSize, replicaId,
+                Duration.ofMillis(acknowledgementIntervalMillis), catchUpPageSize, catchUpPageMaxBytes,
+                slaveMetrics, pullWait);
     }
 
     @Bean
-    public DataRepository repository() {
-        return new InMemoryRepo();
+    public MeterBinder slaveMeterBinder(Slave slave) {
+        return registry -> {
+            Gauge.builder("replication.slave.queue.size", slave, Slave::getReplicationQueueSize)
+                    .description("Elements received from master and waiting to be applied")
+                    .register(registry);
+            Gauge.builder("replication.slave.applied.seq", slave, Slave::getAppliedSeqNum)
+                    .description("Highest contiguously applied sequence number")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public DataRepository repository(@Value("${logDirectory}") String logDirectory,
+                                     @Value("${logOffHeap}") boolean logOffHeap,
+                                     @Value("${logSegmentSizeBytes}") int logSegmentSizeBytes,
+                                     @Value("${logFsyncPolicy}") SegmentedFileRepo.FsyncPolicy logFsyncPolicy,
+                                     @Value("${logFsyncIntervalMillis}") int logFsyncIntervalMillis,
+                                     @Value("${snapshotDirectory}") String snapshotDirectory,
+                                     @Value("${snapshotIntervalSeconds}") int snapshotIntervalSeconds,
+                                     @Value("${logRetainedElements}") long logRetainedElements) {
+        TruncatableRepository log;
+        if (!logDirectory.isBlank()) {
+            log = new SegmentedFileRepo(Path.of(logDirectory), logSegmentSizeBytes, logFsyncPolicy,
+                    Duration.ofMillis(logFsyncIntervalMillis));
+        } else {
+            log = logOffHeap ? new OffHeapRepo() : new ChunkedArrayRepo();
+        }
+        if (snapshotDirectory.isBlank()) {
+            return log;
+        }
+        return new SnapshottingRepo(log, Path.of(snapshotDirectory), logRetainedElements,
+                Duration.ofSeconds(snapshotIntervalSeconds));
     }
 }
@@ -3,14 +3,15 @@ package com.ds.replicationlog.slave.client;
 import com.ds.replicationlog.statemachine.Acknowledgement;
 import com.ds.replicationlog.statemachine.DataElement;
 import com.ds.replicationlog.statemachine.MasterClient;
+import com.ds.replicationlog.statemachine.http.HttpClients;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -23,17 +24,22 @@ import java.util.List;
 import static java.util.Objects.requireNonNull;
 
 @Component
-public class MasterClientImpl implements MasterClient {
+public class MasterClientImpl implements MasterClient, AutoCloseable {
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final String acknowledgeUri;
     private final String dataElementsUri;
+    private final String snapshotUri;
     private final Duration masterRequestTimeout;
+    private final HttpClient httpClient;
 
     public MasterClientImpl(@Value("${masterHostPort}") String masterHostPort,
-                            @Value("${masterRequestTimeoutSeconds}")  int masterRequestTimeoutSeconds) {
+                            @Value("${masterRequestTimeoutSeconds}")  int masterRequestTimeoutSeconds,
+                            @Value("${masterHttpVersion}") HttpClient.Version masterHttpVersion) {
         this.acknowledgeUri = "http://%s/master/replication/acknowledge_reception".formatted(masterHostPort);
         this.dataElementsUri = "http://%s/master/data/get_data/".formatted(masterHostPort);
+        this.snapshotUri = "http://%s/master/data/snapshot".formatted(masterHostPort);
         this.masterRequestTimeout = Duration.ofSeconds(masterRequestTimeoutSeconds);
+        this.httpClient = HttpClients.create(masterHttpVersion, masterRequestTimeout);
     }
 
     @Override
@@ -56,21 +62,23 @@ public class MasterClientImpl implements MasterClient {
                 .uri(new URI(acknowledgeUri))
                 .timeout(masterRequestTimeout)
                 .headers("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(jsonRequest.getBytes())))
+                .POST(HttpRequest.BodyPublishers.ofString(jsonRequest))
                 .build();
     }
 
-    private HttpResponse<String> sendHttpRequest(HttpRequest request) throws URISyntaxException,
-            IOException, InterruptedException {
-        try (var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
-            return client.send(request, HttpResponse.BodyHandlers.ofString());
-        }
+    private HttpResponse<String> sendHttpRequest(HttpRequest request) throws IOException, InterruptedException {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
     }
 
     @Override
-    public List<DataElement> getDataElements(long fromSeqNum) {
+    public List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes) {
+        return getDataElements(fromSeqNum, limit, maxBytes, Duration.ZERO);
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes, Duration wait) {
         try {
-            var httpRequest = createDataRequest(fromSeqNum);
+            var httpRequest = createDataRequest(fromSeqNum, limit, maxBytes, wait);
             var response = sendHttpRequest(httpRequest);
             if (response.statusCode() != HttpURLConnection.HTTP_OK) {
                 throw new RuntimeException("Failed to retrieve data elements");
@@ -81,12 +89,42 @@ public class MasterClientImpl implements MasterClient {
         }
     }
 
-    private HttpRequest createDataRequest(long fromSeqNum) throws URISyntaxException {
+    private HttpRequest createDataRequest(long fromSeqNum, int limit, long maxBytes, Duration wait)
+            throws URISyntaxException {
+        var uri = dataElementsUri + fromSeqNum + "?limit=" + limit + "&maxBytes=" + maxBytes;
         return HttpRequest.newBuilder()
-                .uri(new URI(dataElementsUri + fromSeqNum))
-                .timeout(masterRequestTimeout)
+                .uri(new URI(wait.isPositive() ? uri + "&waitMillis=" + wait.toMillis() : uri))
+                .timeout(masterRequestTimeout.plus(wait))
                 .headers("Content-Type", "application/json")
                 .GET()
                 .build();
     }
+
+    /**
+     * Returns the response body as it arrives, so only receiving the response headers is limited by the request
+     * timeout and the snapshot is never held in memory as a whole.
+     */
+    @Override
+    public InputStream getSnapshot() {
+        try {
+            var httpRequest = HttpRequest.newBuilder()
+                    .uri(new URI(snapshotUri))
+                    .timeout(masterRequestTimeout)
+                    .GET()
+                    .build();
+            var response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                response.body().close();
+                throw new RuntimeException("Failed to retrieve snapshot");
+            }
+            return response.body();
+        } catch (URISyntaxException | IOException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+    }
 }
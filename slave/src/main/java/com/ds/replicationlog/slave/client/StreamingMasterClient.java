@@ -0,0 +1,148 @@
+package com.ds.replicationlog.slave.client;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.MasterClient;
+import com.ds.replicationlog.statemachine.Slave;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.ds.replicationlog.statemachine.codec.ReplicationStreamCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps one long-lived connection to the replication stream of master, handing received data frames to
+ * {@link Slave} and writing acknowledgements back over the same connection. The connection is reopened after a
+ * failure, elements streamed meanwhile are fetched by the slave catch up, which keeps using HTTP pages.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "replicationTransport", havingValue = "STREAM")
+public class StreamingMasterClient implements MasterClient, AutoCloseable {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+    private static final long RECONNECT_WAIT_MS = 1_000;
+
+    private final ByteBufferPool bufferPool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final ReentrantLock outLock = new ReentrantLock();
+    private final MasterClientImpl catchUpClient;
+    private final Slave slave;
+    private final String masterHostPort;
+    private final String masterHost;
+    private final int masterPort;
+    private final int connectTimeoutMillis;
+    private final int maxBatchBytes;
+    private final Thread receiver;
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+
+    public StreamingMasterClient(MasterClientImpl catchUpClient, @Lazy Slave slave,
+                                 @Value("${masterStreamHostPort}") String masterStreamHostPort,
+                                 @Value("${masterRequestTimeoutSeconds}") int masterRequestTimeoutSeconds,
+                                 @Value("${replicationMaxBatchBytes}") int maxBatchBytes) {
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("Replication max batch bytes must be positive");
+        }
+        this.catchUpClient = requireNonNull(catchUpClient);
+        this.slave = requireNonNull(slave);
+        var separator = masterStreamHostPort.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Master stream host port must be host:port");
+        }
+        this.masterHostPort = masterStreamHostPort;
+        this.masterHost = masterStreamHostPort.substring(0, separator);
+        this.masterPort = Integer.parseInt(masterStreamHostPort.substring(separator + 1));
+        this.connectTimeoutMillis = masterRequestTimeoutSeconds * 1_000;
+        this.maxBatchBytes = maxBatchBytes;
+        this.receiver = Thread.ofVirtual().name("replication-stream").start(this::receiveDataElements);
+    }
+
+    private void receiveDataElements() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try (var connection = new Socket()) {
+                connection.setTcpNoDelay(true);
+                connection.connect(new InetSocketAddress(masterHost, masterPort), connectTimeoutMillis);
+                socket = connection;
+                out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                var in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), BUFFER_SIZE));
+                logger.info("Connected to replication stream of master {}", masterHostPort);
+                while (!Thread.currentThread().isInterrupted()) {
+                    slave.appendData(ReplicationStreamCodec.readDataElements(in, maxBatchBytes, bufferPool));
+                }
+            } catch (IOException e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    logger.warn("Replication stream of master {} has failed", masterHostPort, e);
+                }
+            } finally {
+                out = null;
+            }
+            try {
+                Thread.sleep(RECONNECT_WAIT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void acknowledgeReception(Acknowledgement acknowledgement) {
+        requireNonNull(acknowledgement);
+        outLock.lock();
+        try {
+            var currentOut = out;
+            if (currentOut == null) {
+                throw new RuntimeException("Replication stream of master is not connected");
+            }
+            ReplicationStreamCodec.writeAcknowledgement(currentOut, acknowledgement);
+            currentOut.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to send acknowledge", e);
+        } finally {
+            outLock.unlock();
+        }
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes) {
+        return catchUpClient.getDataElements(fromSeqNum, limit, maxBytes);
+    }
+
+    @Override
+    public List<DataElement> getDataElements(long fromSeqNum, int limit, long maxBytes, Duration wait) {
+        return catchUpClient.getDataElements(fromSeqNum, limit, maxBytes, wait);
+    }
+
+    @Override
+    public InputStream getSnapshot() {
+        return catchUpClient.getSnapshot();
+    }
+
+    @Override
+    public void close() throws IOException {
+        receiver.interrupt();
+        var currentSocket = socket;
+        if (currentSocket != null) {
+            currentSocket.close();
+        }
+    }
+}
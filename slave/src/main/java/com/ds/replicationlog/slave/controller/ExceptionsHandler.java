@@ -6,11 +6,26 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeoutException;
 
 @ControllerAdvice
 public class ExceptionsHandler {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    @ExceptionHandler({TimeoutException.class})
+    public ResponseEntity<Object> handleTimeoutException(TimeoutException exception) {
+        logger.warn("Request has failed because of timeout", exception);
+        return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body("Timeout during request processing");
+    }
+
+    @ExceptionHandler({ResponseStatusException.class})
+    public ResponseEntity<Object> handleResponseStatusException(ResponseStatusException exception) {
+        logger.warn("Request has been rejected", exception);
+        return ResponseEntity.status(exception.getStatusCode()).body(exception.getReason());
+    }
+
     @ExceptionHandler({RuntimeException.class})
     public ResponseEntity<Object> handleRuntimeException(RuntimeException exception) {
         logger.warn("Request has failed because of internal error", exception);
@@ -2,18 +2,34 @@ package com.ds.replicationlog.slave.controller;
 
 import com.ds.replicationlog.statemachine.DataElement;
 import com.ds.replicationlog.statemachine.Slave;
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Hidden;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Objects.requireNonNull;
 
@@ -22,17 +38,79 @@ import static java.util.Objects.requireNonNull;
 public class SlaveController {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 32;
+
     private final Slave slave;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchBytes;
+    private final ByteBufferPool bufferPool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
 
-    public SlaveController(Slave slave) {
+    public SlaveController(Slave slave, ObjectMapper objectMapper,
+                           @Value("${replicationMaxBatchBytes}") int maxBatchBytes) {
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("Replication max batch bytes must be positive");
+        }
         this.slave = requireNonNull(slave);
+        this.objectMapper = requireNonNull(objectMapper);
+        this.maxBatchBytes = maxBatchBytes;
     }
 
+    /**
+     * Streams the log as a JSON array read lazily from the repository, once minSeqNum has been applied or with request
+     * timeout status if it is not applied within waitMillis.
+     */
     @GetMapping(value = "data/get_data", produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseBody
-    public List<DataElement> getData() {
-        logger.debug("Get data was executed");
-        return slave.getData(0);
+    public CompletableFuture<StreamingResponseBody> getData(@RequestParam(defaultValue = "0") long minSeqNum,
+                                                            @RequestParam(defaultValue = "1000") long waitMillis) {
+        logger.debug("Get data was executed for minSeqNum: {}, waitMillis: {}", minSeqNum, waitMillis);
+        validateWait(minSeqNum, waitMillis);
+        return slave.awaitApplied(minSeqNum, Duration.ofMillis(waitMillis)).thenApply(ignored -> {
+            var dataElements = slave.iterateData(0);
+            return outputStream -> {
+                try (var generator = createGenerator(outputStream)) {
+                    generator.writeStartArray();
+                    while (dataElements.hasNext()) {
+                        generator.writePOJO(dataElements.next());
+                    }
+                    generator.writeEndArray();
+                }
+            };
+        });
+    }
+
+    /**
+     * Same as get_data, but as newline delimited JSON, one element per line.
+     */
+    @GetMapping(value = "data/get_data", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public CompletableFuture<StreamingResponseBody> getDataNdjson(@RequestParam(defaultValue = "0") long minSeqNum,
+                                                                  @RequestParam(defaultValue = "1000")
+                                                                  long waitMillis) {
+        logger.debug("Get data as NDJSON was executed for minSeqNum: {}, waitMillis: {}", minSeqNum, waitMillis);
+        validateWait(minSeqNum, waitMillis);
+        return slave.awaitApplied(minSeqNum, Duration.ofMillis(waitMillis)).thenApply(ignored -> {
+            var dataElements = slave.iterateData(0);
+            return outputStream -> {
+                try (var generator = createGenerator(outputStream)) {
+                    while (dataElements.hasNext()) {
+                        generator.writePOJO(dataElements.next());
+                        generator.writeRaw('\n');
+                    }
+                }
+            };
+        });
+    }
+
+    private static void validateWait(long minSeqNum, long waitMillis) {
+        if (minSeqNum < 0 || waitMillis < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minSeqNum and waitMillis cannot be negative");
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+        var generator = objectMapper.createGenerator(outputStream).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
     }
 
     @Hidden
@@ -41,4 +119,61 @@ public class SlaveController {
         logger.debug("Replication data append: {}", dataElement);
         slave.appendData(dataElement);
     }
+
+    @Hidden
+    @PostMapping("replication/append_batch")
+    public void appendBatch(@RequestBody List<DataElement> dataElements) {
+        logger.debug("Replication batch append of {} elements", dataElements.size());
+        slave.appendData(dataElements);
+    }
+
+    /**
+     * Rejects a batch above replicationMaxBatchBytes with payload too large status before buffering it.
+     */
+    @Hidden
+    @PostMapping(value = "replication/append_batch", consumes = BinaryDataElementCodec.MEDIA_TYPE)
+    public void appendBinaryBatch(InputStream body,
+                                  @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, defaultValue = "-1")
+                                  long contentLength) throws IOException {
+        if (contentLength > maxBatchBytes) {
+            throw batchTooLarge();
+        }
+        if (contentLength < 0) {
+            var bytes = body.readNBytes(maxBatchBytes);
+            if (body.read() >= 0) {
+                throw batchTooLarge();
+            }
+            appendBinaryBatch(ByteBuffer.wrap(bytes));
+            return;
+        }
+        var buffer = bufferPool.acquire((int) contentLength);
+        try {
+            while (buffer.hasRemaining()) {
+                var read = body.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (read < 0) {
+                    break;
+                }
+                buffer.position(buffer.position() + read);
+            }
+            appendBinaryBatch(buffer.flip());
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private void appendBinaryBatch(ByteBuffer body) {
+        List<DataElement> dataElements;
+        try {
+            dataElements = BinaryDataElementCodec.decode(body);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed replication batch", e);
+        }
+        logger.debug("Replication binary batch append of {} elements", dataElements.size());
+        slave.appendData(dataElements);
+    }
+
+    private ResponseStatusException batchTooLarge() {
+        return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Replication batch exceeds " + maxBatchBytes + " bytes");
+    }
 }
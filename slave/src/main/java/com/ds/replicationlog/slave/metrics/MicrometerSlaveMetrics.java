@@ -0,0 +1,46 @@
+package com.ds.replicationlog.slave.metrics;
+
+import com.ds.replicationlog.statemachine.SlaveMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class MicrometerSlaveMetrics implements SlaveMetrics {
+    private final Counter appliedElements;
+    private final Timer applyTimer;
+    private final Counter catchUpElements;
+    private final Timer catchUpTimer;
+
+    public MicrometerSlaveMetrics(MeterRegistry registry) {
+        this.appliedElements = Counter.builder("replication.slave.applied.elements")
+                .description("Elements written to the repository of the replica")
+                .register(registry);
+        this.applyTimer = Timer.builder("replication.slave.apply")
+                .description("Time to write a batch of replicated elements to the repository")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.catchUpElements = Counter.builder("replication.slave.catchup.elements")
+                .description("Elements pulled from master while catching up")
+                .register(registry);
+        this.catchUpTimer = Timer.builder("replication.slave.catchup")
+                .description("Duration of a catch up with master")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public void dataApplied(int count, long durationNanos) {
+        appliedElements.increment(count);
+        applyTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void catchUpCompleted(long count, long durationNanos) {
+        catchUpElements.increment(count);
+        catchUpTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -11,10 +11,14 @@ import org.mockserver.client.MockServerClient;
 import org.mockserver.integration.ClientAndServer;
 import org.mockserver.verify.VerificationTimes;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
@@ -25,7 +29,7 @@ import static org.mockserver.model.StringBody.exact;
 
 public class MasterClientImplTest {
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final MasterClientImpl client = new MasterClientImpl("localhost:8080", 2);
+    private final MasterClientImpl client = new MasterClientImpl("localhost:8080", 2, HttpClient.Version.HTTP_1_1);
 
     private ClientAndServer mockServer;
 
@@ -36,6 +40,7 @@ public class MasterClientImplTest {
 
     @AfterEach
     void tearDown() {
+        client.close();
         mockServer.stop();
     }
 
@@ -104,7 +109,7 @@ public class MasterClientImplTest {
         var expectedResult = List.of(new DataElement("data", fromSeqNum));
         mockGetData(fromSeqNum, HttpURLConnection.HTTP_OK, 0, expectedResult);
 
-        var result = client.getDataElements(fromSeqNum);
+        var result = client.getDataElements(fromSeqNum, 100, 1_024);
 
         assertEquals(expectedResult, result);
         verifyGetData(fromSeqNum);
@@ -130,7 +135,9 @@ public class MasterClientImplTest {
         new MockServerClient("localhost", 8080).verify(
                 request()
                         .withMethod("GET")
-                        .withPath("/master/data/get_data/" + fromSeqNum),
+                        .withPath("/master/data/get_data/" + fromSeqNum)
+                        .withQueryStringParameter("limit", "100")
+                        .withQueryStringParameter("maxBytes", "1024"),
                 VerificationTimes.exactly(1)
         );
     }
@@ -141,7 +148,7 @@ public class MasterClientImplTest {
         var expectedResult = List.of(new DataElement("data", fromSeqNum));
         mockGetData(fromSeqNum, HttpURLConnection.HTTP_INTERNAL_ERROR, 0, expectedResult);
 
-        assertThrows(RuntimeException.class, () -> client.getDataElements(fromSeqNum));
+        assertThrows(RuntimeException.class, () -> client.getDataElements(fromSeqNum, 100, 1_024));
 
         verifyGetData(fromSeqNum);
     }
@@ -152,8 +159,54 @@ public class MasterClientImplTest {
         var expectedResult = List.of(new DataElement("data", fromSeqNum));
         mockGetData(fromSeqNum, HttpURLConnection.HTTP_OK, 3_000, expectedResult);
 
-        assertThrows(RuntimeException.class, () -> client.getDataElements(fromSeqNum));
+        assertThrows(RuntimeException.class, () -> client.getDataElements(fromSeqNum, 100, 1_024));
 
         verifyGetData(fromSeqNum);
     }
+
+    @Test
+    public void getDataElementsLongPollIsNotLimitedByRequestTimeout() throws JsonProcessingException {
+        var fromSeqNum = 1L;
+        var expectedResult = List.of(new DataElement("data", fromSeqNum));
+        mockGetData(fromSeqNum, HttpURLConnection.HTTP_OK, 3_000, expectedResult);
+
+        var result = client.getDataElements(fromSeqNum, 100, 1_024, Duration.ofSeconds(2));
+
+        assertEquals(expectedResult, result);
+        //noinspection resource
+        new MockServerClient("localhost", 8080).verify(
+                request()
+                        .withPath("/master/data/get_data/" + fromSeqNum)
+                        .withQueryStringParameter("waitMillis", "2000"),
+                VerificationTimes.exactly(1)
+        );
+    }
+
+    @Test
+    public void getSnapshotStreamsResponseBody() throws IOException {
+        mockGetSnapshot(HttpURLConnection.HTTP_OK, new byte[] {1, 2, 3});
+
+        try (var snapshot = client.getSnapshot()) {
+            assertArrayEquals(new byte[] {1, 2, 3}, snapshot.readAllBytes());
+        }
+    }
+
+    @Test
+    public void getSnapshotForNonOkStatusFails() {
+        mockGetSnapshot(HttpURLConnection.HTTP_INTERNAL_ERROR, new byte[0]);
+
+        assertThrows(RuntimeException.class, client::getSnapshot);
+    }
+
+    private void mockGetSnapshot(int responseStatus, byte[] snapshot) {
+        //noinspection resource
+        new MockServerClient("127.0.0.1", 8080).when(
+                        request()
+                                .withMethod("GET")
+                                .withPath("/master/data/snapshot"),
+                        exactly(1))
+                .respond(response()
+                        .withStatusCode(responseStatus)
+                        .withBody(snapshot));
+    }
 }
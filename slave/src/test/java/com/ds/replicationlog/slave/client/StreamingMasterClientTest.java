@@ -0,0 +1,156 @@
+package com.ds.replicationlog.slave.client;
+
+import com.ds.replicationlog.statemachine.Acknowledgement;
+import com.ds.replicationlog.statemachine.DataElement;
+import com.ds.replicationlog.statemachine.Slave;
+import com.ds.replicationlog.statemachine.codec.ByteBufferPool;
+import com.ds.replicationlog.statemachine.codec.ReplicationStreamCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamingMasterClientTest {
+    private static final int MAX_BATCH_BYTES = 1024;
+
+    private final ByteBufferPool bufferPool = new ByteBufferPool(1024, 1);
+    @Mock
+    private MasterClientImpl catchUpClient;
+    @Mock
+    private Slave slave;
+    private ServerSocket master;
+    private StreamingMasterClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        master = new ServerSocket(0);
+        client = new StreamingMasterClient(catchUpClient, slave, "localhost:" + master.getLocalPort(), 2,
+                MAX_BATCH_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        master.close();
+    }
+
+    @Test
+    public void constructionForMissingPortFails() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingMasterClient(catchUpClient, slave,
+                "localhost", 2, MAX_BATCH_BYTES));
+    }
+
+    @Test
+    public void constructionForNonPositiveMaxBatchBytesFails() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingMasterClient(catchUpClient, slave,
+                "localhost:" + master.getLocalPort(), 2, 0));
+    }
+
+    @Test
+    public void streamedDataElementsArePassedToSlave() throws IOException {
+        var dataElements1 = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        var dataElements2 = List.of(new DataElement("data3", 3));
+
+        try (var connection = master.accept()) {
+            var out = new DataOutputStream(connection.getOutputStream());
+            ReplicationStreamCodec.writeDataElements(out, dataElements1, bufferPool);
+            ReplicationStreamCodec.writeDataElements(out, dataElements2, bufferPool);
+            out.flush();
+
+            verify(slave, timeout(1_000)).appendData(dataElements1);
+            verify(slave, timeout(1_000)).appendData(dataElements2);
+        }
+    }
+
+    @Test
+    public void acknowledgementIsSentOverStream() throws Exception {
+        try (var connection = master.accept()) {
+            var acknowledgement = new Acknowledgement("r1", 7);
+            // the client publishes its output stream right after connecting
+            Thread.sleep(200);
+
+            client.acknowledgeReception(acknowledgement);
+
+            assertEquals(acknowledgement, ReplicationStreamCodec.readAcknowledgement(
+                    new DataInputStream(connection.getInputStream())));
+        }
+    }
+
+    @Test
+    public void acknowledgementWithoutConnectionFails() throws IOException {
+        int unusedPort;
+        try (var socket = new ServerSocket(0)) {
+            unusedPort = socket.getLocalPort();
+        }
+
+        try (var disconnectedClient = new StreamingMasterClient(catchUpClient, slave, "localhost:" + unusedPort, 2,
+                MAX_BATCH_BYTES)) {
+            assertThrows(RuntimeException.class, () -> disconnectedClient.acknowledgeReception(
+                    new Acknowledgement("r1", 1)));
+        }
+    }
+
+    @Test
+    public void clientReconnectsAfterStreamFailure() throws IOException {
+        var dataElements = List.of(new DataElement("data1", 1));
+        master.accept().close();
+
+        try (var connection = master.accept()) {
+            var out = new DataOutputStream(connection.getOutputStream());
+            ReplicationStreamCodec.writeDataElements(out, dataElements, bufferPool);
+            out.flush();
+
+            verify(slave, timeout(1_000)).appendData(dataElements);
+        }
+    }
+
+    @Test
+    public void frameAboveMaxBatchBytesDropsConnection() throws IOException {
+        master.setSoTimeout(5_000);
+
+        try (var connection = master.accept()) {
+            var out = new DataOutputStream(connection.getOutputStream());
+            ReplicationStreamCodec.writeDataElements(out, List.of(new DataElement("data".repeat(MAX_BATCH_BYTES), 1)),
+                    bufferPool);
+            out.flush();
+        }
+        master.accept().close();
+
+        verify(slave, never()).appendData(anyList());
+    }
+
+    @Test
+    public void getDataElementsIsDelegatedToCatchUpClient() {
+        var dataElements = List.of(new DataElement("data1", 1));
+        when(catchUpClient.getDataElements(1, 100, 1_024)).thenReturn(dataElements);
+
+        assertEquals(dataElements, client.getDataElements(1, 100, 1_024));
+    }
+
+    @Test
+    public void getSnapshotIsDelegatedToCatchUpClient() {
+        var snapshot = new ByteArrayInputStream(new byte[] {1});
+        when(catchUpClient.getSnapshot()).thenReturn(snapshot);
+
+        assertSame(snapshot, client.getSnapshot());
+    }
+}
@@ -2,12 +2,30 @@ package com.ds.replicationlog.slave.controller;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeoutException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class ExceptionsHandlerTest {
     private final ExceptionsHandler handler = new ExceptionsHandler();
 
+    @Test
+    public void handleTimeoutExceptionReturnsRequestTimeout() {
+        var response = handler.handleTimeoutException(new TimeoutException("test"));
+
+        assertEquals(HttpStatus.REQUEST_TIMEOUT, response.getStatusCode());
+    }
+
+    @Test
+    public void handleResponseStatusExceptionReturnsItsStatus() {
+        var response = handler.handleResponseStatusException(
+                new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "test"));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+    }
+
     @Test
     public void handleRuntimeExceptionReturnsInternalServerError() {
         var response = handler.handleRuntimeException(new RuntimeException("test"));
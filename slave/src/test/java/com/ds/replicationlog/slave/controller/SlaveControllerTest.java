@@ -2,6 +2,7 @@ package com.ds.replicationlog.slave.controller;
 
 import com.ds.replicationlog.statemachine.DataElement;
 import com.ds.replicationlog.statemachine.Slave;
+import com.ds.replicationlog.statemachine.codec.BinaryDataElementCodec;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -10,15 +11,29 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(SlaveController.class)
@@ -30,16 +45,94 @@ public class SlaveControllerTest {
     private Slave slave;
 
     @Test
-    public void getDataSucceeds() throws Exception {
-        var result = List.of(new DataElement("data", 1));
-        when(slave.getData(0)).thenReturn(result);
+    public void getDataStreamsJsonArray() throws Exception {
+        var result = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        when(slave.awaitApplied(0, Duration.ofSeconds(1))).thenReturn(CompletableFuture.completedFuture(2L));
+        when(slave.iterateData(0)).thenReturn(result.iterator());
 
-        var resultJson= mockMvc.perform(get("/slave/data/get_data")).andDo(print()).andExpect(status().isOk())
-                .andReturn().getResponse().getContentAsString();
+        var resultJson = dispatchStreamed(mockMvc.perform(get("/slave/data/get_data"))
+                .andExpect(request().asyncStarted()).andReturn()).getResponse().getContentAsString();
 
         assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
     }
 
+    @Test
+    public void getDataStreamsNdjsonWhenAccepted() throws Exception {
+        var result = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        when(slave.awaitApplied(0, Duration.ofSeconds(1))).thenReturn(CompletableFuture.completedFuture(2L));
+        when(slave.iterateData(0)).thenReturn(result.iterator());
+
+        var asyncResult = mockMvc.perform(get("/slave/data/get_data").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        var lines = dispatchStreamed(asyncResult).getResponse().getContentAsString().split("\n");
+
+        assertEquals(2, lines.length);
+        assertEquals(result.get(0), objectMapper.readValue(lines[0], DataElement.class));
+        assertEquals(result.get(1), objectMapper.readValue(lines[1], DataElement.class));
+    }
+
+    @Test
+    public void getDataStreamsBodyLargerThanOneBufferWithoutAsyncTimeout() throws Exception {
+        var result = LongStream.rangeClosed(1, 10_000).mapToObj(seqNum -> new DataElement("data" + seqNum, seqNum))
+                .toList();
+        when(slave.awaitApplied(0, Duration.ofSeconds(1))).thenReturn(CompletableFuture.completedFuture(10_000L));
+        when(slave.iterateData(0)).thenReturn(result.iterator());
+
+        var asyncResult = mockMvc.perform(get("/slave/data/get_data")).andExpect(request().asyncStarted())
+                .andReturn();
+        var streamingResult = dispatchStreamed(asyncResult);
+
+        assertEquals(-1, asyncResult.getRequest().getAsyncContext().getTimeout());
+        var resultJson = streamingResult.getResponse().getContentAsString();
+        assertTrue(resultJson.length() > 64 * 1024);
+        assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
+    }
+
+    @Test
+    public void getDataForNegativeWaitMillisIsRejected() throws Exception {
+        mockMvc.perform(get("/slave/data/get_data").param("waitMillis", "-1")).andDo(print())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/slave/data/get_data").accept(MediaType.APPLICATION_NDJSON).param("waitMillis", "-1"))
+                .andDo(print()).andExpect(status().isBadRequest());
+
+        verify(slave, never()).awaitApplied(anyLong(), any());
+    }
+
+    @Test
+    public void getDataForNegativeMinSeqNumIsRejected() throws Exception {
+        mockMvc.perform(get("/slave/data/get_data").param("minSeqNum", "-1")).andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(slave, never()).awaitApplied(anyLong(), any());
+    }
+
+    @Test
+    public void getDataWaitsForMinSeqNum() throws Exception {
+        var result = List.of(new DataElement("data1", 1), new DataElement("data2", 2));
+        var applied = new CompletableFuture<Long>();
+        when(slave.awaitApplied(2, Duration.ofMillis(500))).thenReturn(applied);
+        when(slave.iterateData(0)).thenReturn(result.iterator());
+
+        var asyncResult = mockMvc.perform(get("/slave/data/get_data").param("minSeqNum", "2")
+                .param("waitMillis", "500")).andExpect(request().asyncStarted()).andReturn();
+        applied.complete(2L);
+        var resultJson = dispatchStreamed(asyncResult).getResponse().getContentAsString();
+
+        assertEquals(result, objectMapper.readValue(resultJson, new TypeReference<List<DataElement>>() {}));
+    }
+
+    @Test
+    public void getDataIfMinSeqNumIsNotAppliedReturnsTimeoutStatusCode() throws Exception {
+        when(slave.awaitApplied(2, Duration.ofMillis(500))).thenReturn(CompletableFuture.failedFuture(
+                new TimeoutException("test")));
+
+        var asyncResult = mockMvc.perform(get("/slave/data/get_data").param("minSeqNum", "2")
+                .param("waitMillis", "500")).andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult)).andDo(print()).andExpect(status().isRequestTimeout());
+        verify(slave, never()).iterateData(anyLong());
+    }
+
     @Test
     public void appendDataAcceptsMessage() throws Exception {
         var dataElement = new DataElement("payload", 1);
@@ -49,4 +142,56 @@ public class SlaveControllerTest {
 
         verify(slave).appendData(dataElement);
     }
+
+    @Test
+    public void appendBatchAcceptsMessages() throws Exception {
+        var dataElements = List.of(new DataElement("payload1", 1), new DataElement("payload2", 2));
+
+        mockMvc.perform(post("/slave/replication/append_batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(dataElements))).andDo(print()).andExpect(status().isOk());
+
+        verify(slave).appendData(dataElements);
+    }
+
+    @Test
+    public void appendBatchAcceptsBinaryMessages() throws Exception {
+        var dataElements = List.of(new DataElement("payload1", 1), new DataElement("payload2", 2));
+        var body = ByteBuffer.allocate(BinaryDataElementCodec.maxEncodedLength(dataElements));
+        BinaryDataElementCodec.encode(dataElements, body);
+
+        mockMvc.perform(post("/slave/replication/append_batch").contentType(BinaryDataElementCodec.MEDIA_TYPE)
+                .content(Arrays.copyOf(body.array(), body.position()))).andDo(print()).andExpect(status().isOk());
+
+        verify(slave).appendData(dataElements);
+    }
+
+    @Test
+    public void appendBatchRejectsBinaryMessagesAboveMaxBatchBytes() throws Exception {
+        mockMvc.perform(post("/slave/replication/append_batch").contentType(BinaryDataElementCodec.MEDIA_TYPE)
+                .content(new byte[16 * 1024 * 1024 + 1])).andDo(print()).andExpect(status().isPayloadTooLarge());
+
+        verify(slave, never()).appendData(anyList());
+    }
+
+    @Test
+    public void appendBatchRejectsTruncatedBinaryMessages() throws Exception {
+        var dataElements = List.of(new DataElement("payload1", 1), new DataElement("payload2", 2));
+        var body = ByteBuffer.allocate(BinaryDataElementCodec.maxEncodedLength(dataElements));
+        BinaryDataElementCodec.encode(dataElements, body);
+
+        mockMvc.perform(post("/slave/replication/append_batch").contentType(BinaryDataElementCodec.MEDIA_TYPE)
+                .content(Arrays.copyOf(body.array(), body.position() - 1))).andDo(print())
+                .andExpect(status().isBadRequest());
+
+        verify(slave, never()).appendData(anyList());
+    }
+
+    /**
+     * Dispatches the awaited response body, which in turn streams asynchronously.
+     */
+    private MvcResult dispatchStreamed(MvcResult asyncResult) throws Exception {
+        var streamingResult = mockMvc.perform(asyncDispatch(asyncResult)).andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(streamingResult)).andDo(print()).andExpect(status().isOk()).andReturn();
+    }
 }